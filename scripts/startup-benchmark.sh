@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request of the packaged application.
+#
+# Usage: scripts/startup-benchmark.sh [jvm|aot|cds|native] [runs]
+#
+#   jvm    - plain fat jar with the 'prod' profile
+#   aot    - jar built with './mvnw -Paot package', started with -Dspring.aot.enabled=true
+#   cds    - exploded jar started with a class-data-sharing archive (the archive is created on the first run)
+#   native - executable built with './mvnw -Pnative native:compile'
+#
+# Every run starts the application, polls GET /users/1 until any HTTP status is returned and records
+# the elapsed milliseconds into target/startup-benchmark.csv.
+set -euo pipefail
+
+MODE="${1:-jvm}"
+RUNS="${2:-5}"
+PORT="${PORT:-8080}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+TARGET="$ROOT/target"
+JAR="$(ls "$TARGET"/testassigment-*.jar | grep -v '\.original$' | head -n 1)"
+CDS_DIR="$TARGET/cds"
+REPORT="$TARGET/startup-benchmark.csv"
+PROFILE_ARGS=(--spring.profiles.active=prod --server.port="$PORT")
+
+prepare_cds() {
+  if [[ ! -f "$CDS_DIR/application.jsa" ]]; then
+    rm -rf "$CDS_DIR" && mkdir -p "$CDS_DIR"
+    (cd "$CDS_DIR" && jar xf "$JAR")
+    # Start once and exit right after the context refresh to dump the loaded classes
+    java -XX:ArchiveClassesAtExit="$CDS_DIR/application.jsa" -Dspring.context.exit=onRefresh \
+      -cp "$CDS_DIR/BOOT-INF/classes:$CDS_DIR/BOOT-INF/lib/*" \
+      com.clearsolution.testassigment.TestassigmentApplication "${PROFILE_ARGS[@]}" > /dev/null
+  fi
+}
+
+start_app() {
+  case "$MODE" in
+    jvm)    java -jar "$JAR" "${PROFILE_ARGS[@]}" ;;
+    aot)    java -Dspring.aot.enabled=true -jar "$JAR" "${PROFILE_ARGS[@]}" ;;
+    cds)    java -XX:SharedArchiveFile="$CDS_DIR/application.jsa" \
+              -cp "$CDS_DIR/BOOT-INF/classes:$CDS_DIR/BOOT-INF/lib/*" \
+              com.clearsolution.testassigment.TestassigmentApplication "${PROFILE_ARGS[@]}" ;;
+    native) "$TARGET/testassigment" "${PROFILE_ARGS[@]}" ;;
+    *)      echo "Unknown mode $MODE" >&2; exit 1 ;;
+  esac
+}
+
+now_ms() { date +%s%3N; }
+
+[[ "$MODE" == "cds" ]] && prepare_cds
+[[ -f "$REPORT" ]] || echo "timestamp,mode,run,time_to_first_request_ms" > "$REPORT"
+
+for run in $(seq 1 "$RUNS"); do
+  started="$(now_ms)"
+  start_app > "$TARGET/startup-benchmark-$MODE.log" 2>&1 &
+  pid=$!
+  until [[ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/users/1" || true)" != "000" ]]; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "Application exited, see $TARGET/startup-benchmark-$MODE.log" >&2
+      exit 1
+    fi
+    sleep 0.01
+  done
+  elapsed=$(( $(now_ms) - started ))
+  kill "$pid" && wait "$pid" 2> /dev/null || true
+  echo "$(date -u +%Y-%m-%dT%H:%M:%SZ),$MODE,$run,$elapsed" >> "$REPORT"
+  echo "$MODE run $run: first request answered after ${elapsed} ms"
+done
@@ -0,0 +1,14 @@
+package com.clearsolution.testassigment.configs;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Enables the synthetic dataset generator with the {@code generate} profile.
+ */
+@Configuration
+@Profile("generate")
+@EnableConfigurationProperties(GeneratorProperties.class)
+public class GeneratorConfig {
+}
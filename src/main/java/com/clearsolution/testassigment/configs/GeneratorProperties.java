@@ -0,0 +1,25 @@
+package com.clearsolution.testassigment.configs;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalDate;
+
+@Data
+@ConfigurationProperties(prefix = "users.generator")
+public class GeneratorProperties {
+    private long count = 1_000_000;
+    // Index of the first generated user; generating a later range adds users without repeating emails
+    private long firstIndex;
+    private long seed = 42;
+    private int partitions = 8;
+    private int batchSize = 5_000;
+    // Day the ages are counted from, January 1 of the current year by default
+    private LocalDate referenceDate;
+    // MIN_USER_AGE by default
+    private Integer minAge;
+    private int maxAge = 90;
+    private double meanAge = 38;
+    private double ageStdDev = 12;
+    private boolean exitWhenDone = true;
+}
@@ -0,0 +1,42 @@
+package com.clearsolution.testassigment.configs;
+
+import com.clearsolution.testassigment.repositories.UsersStore;
+import com.clearsolution.testassigment.repositories.sharding.ShardedUsersRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Replaces the JPA users repository with {@link ShardedUsersRepository} as the {@link UsersStore} when
+ * {@code users.sharding.enabled} is set, spreading users over the {@code users.sharding.shards} datasources.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    @Primary
+    public ShardedUsersRepository shardedUsersStore(ShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("users.sharding.shards should contain at least one datasource");
+        }
+        List<DataSource> shards = properties.getShards().stream()
+                .map(shard -> DataSourceBuilder.create()
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .build())
+                .collect(Collectors.toList());
+        return new ShardedUsersRepository(shards);
+    }
+}
@@ -0,0 +1,52 @@
+package com.clearsolution.testassigment.configs;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Startup tuning used by the {@code prod} profile: with {@code spring.main.lazy-initialization}
+ * enabled, the beans on the request path of the users API are still created eagerly,
+ * so the first request does not pay for them.
+ */
+@Configuration
+@ImportRuntimeHints(StartupConfig.UsersRuntimeHints.class)
+public class StartupConfig {
+
+    private static final String BASE_PACKAGE = "com.clearsolution.testassigment.";
+
+    @Bean
+    public static LazyInitializationExcludeFilter usersApiEagerBeans() {
+        return (beanName, beanDefinition, beanType) -> {
+            if (beanType == null) {
+                return false;
+            }
+            String typeName = beanType.getName();
+            return typeName.startsWith(BASE_PACKAGE + "controllers.")
+                    || typeName.startsWith(BASE_PACKAGE + "services.")
+                    || typeName.startsWith(BASE_PACKAGE + "repositories.");
+        };
+    }
+
+    /**
+     * ModelMapper and PATCH requests access the users model reflectively, which has to be declared for AOT
+     * and native images.
+     */
+    static class UsersRuntimeHints implements RuntimeHintsRegistrar {
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : new Class<?>[]{UserEntity.class, UserDTO.class}) {
+                hints.reflection().registerType(type,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS,
+                        MemberCategory.DECLARED_FIELDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.clearsolution.testassigment.controllers;
+import com.clearsolution.testassigment.exceptions.ValidationException;
+import com.clearsolution.testassigment.exceptions.WrongRequestException;
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.services.ReactiveUsersService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.MonthDay;
+import java.time.Year;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of {@link UsersController}, active with the {@code reactive} profile.
+ * Serves the same routes and relies on the same {@code GlobalExceptionsHandler} error contract.
+ */
+@RestController
+@RequestMapping("/users")
+@Profile("reactive")
+public class ReactiveUsersController {
+    private final ReactiveUsersService usersService;
+    @Autowired
+    public ReactiveUsersController(ReactiveUsersService usersService) {
+        this.usersService = usersService;
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> getUserById(@PathVariable Long id) {
+        return usersService.getUserById(id).map(ResponseEntity::ok);
+    }
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<UserDTO>> createUser(@Valid @RequestBody UserDTO dto) {
+        return usersService.createUser(dto)
+                .map(createdUser -> ResponseEntity.status(HttpStatus.CREATED)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(createdUser));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> updateUser(@PathVariable Long id, @Valid @RequestBody UserDTO dto) {
+        if (!id.equals(dto.getId())) {
+            throw new WrongRequestException("User's ID in path doesn't match user's ID in request body ");
+        }
+        return usersService.updateUser(dto).map(ResponseEntity::ok);
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> updateUserFields(@PathVariable Long id, @RequestBody Map<String, Object> fields) {
+        return usersService.updateUserFields(id, fields).map(ResponseEntity::ok);
+    }
+
+    @GetMapping(value = "/birthdate", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<UserDTO> getUsersByBirthDateRange(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to) {
+        if (from.after(to)) {
+            throw new ValidationException("Invalid date range: 'from' should be before 'to'");
+        }
+        return usersService.getUsersByBirthDateRange(from, to);
+    }
+
+    @GetMapping(value = "/birthdays", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<UserDTO> getUsersByBirthdayRange(
+            @RequestParam @DateTimeFormat(pattern = "MM-dd") MonthDay from,
+            @RequestParam @DateTimeFormat(pattern = "MM-dd") MonthDay to,
+            @RequestParam(required = false) Year year) {
+        return usersService.getUsersByBirthdayRange(from, to, year == null ? Year.now() : year);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable Long id) {
+        return usersService.deleteUser(id)
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+}
@@ -1,46 +1,148 @@
 package com.clearsolution.testassigment.controllers;
 import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.models.DTOs.UserLookupDTO;
+import com.clearsolution.testassigment.services.IdempotencyStore;
+import com.clearsolution.testassigment.services.UserFieldSet;
+import com.clearsolution.testassigment.services.UserResponseCache;
 import com.clearsolution.testassigment.services.UsersService;
 import com.clearsolution.testassigment.exceptions.ValidationException;
 import com.clearsolution.testassigment.exceptions.WrongRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.parameters.*;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.io.IOException;
+import java.time.MonthDay;
+import java.time.Year;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/users")
 @Tag(name="Users")
+@Profile("!reactive")
 public class UsersController {
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
     private final UsersService usersService;
+    private final IdempotencyStore idempotencyStore;
+    private final UserResponseCache responseCache;
+    private final ObjectMapper objectMapper;
     @Autowired
-    public UsersController(UsersService usersService) {
+    public UsersController(UsersService usersService, IdempotencyStore idempotencyStore,
+                           UserResponseCache responseCache, ObjectMapper objectMapper) {
         this.usersService = usersService;
+        this.idempotencyStore = idempotencyStore;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
     }
 
-    @Operation(summary="Find user by it's ID")
+    @Operation(summary="Find user by it's ID",
+            responses = @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))))
     @GetMapping("/{id}")
-    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
-        return new ResponseEntity<>(usersService.getUserById(id), HttpStatus.OK);
+    public void getUserById(@PathVariable Long id,
+                            @Parameter(description = "Comma separated fields to return, all by default", example = "id,email,firstName")
+                            @RequestParam(required = false) String fields,
+                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                            HttpServletResponse response) throws IOException {
+        UserFieldSet fieldSet = UserFieldSet.parse(fields);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        byte[] body = responseCache.get(id,
+                gzip ? UserResponseCache.Representation.GZIP_JSON : UserResponseCache.Representation.JSON,
+                fieldSet,
+                () -> fieldSet.isAll() ? usersService.getUserById(id) : usersService.getUserFieldsById(id, fieldSet));
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Reads the codings of an Accept-Encoding header with their q-values. gzip (or its x-gzip alias) is served
+     * when it is listed with a non-zero weight, or when it isn't listed and {@code *} has a non-zero weight.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipWeight = null;
+        double anyWeight = 0;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double weight = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    weight = parseWeight(parameter.substring(2).trim());
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipWeight = gzipWeight == null ? weight : Math.max(gzipWeight, weight);
+            } else if (coding.equals("*")) {
+                anyWeight = weight;
+            }
+        }
+        return gzipWeight != null ? gzipWeight > 0 : anyWeight > 0;
+    }
+
+    private static double parseWeight(String weight) {
+        try {
+            return Double.parseDouble(weight);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Operation(summary="Find users by their IDs, in the requested order")
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<UserLookupDTO>> getUsersByIds(
+            @Parameter(description = "Comma separated user IDs", example = "1,2,3", required = true)
+            @RequestParam List<Long> ids) {
+        return ResponseEntity.ok(usersService.getUsersByIds(ids));
+    }
+
+    @Operation(summary="Find users by a long list of IDs, in the requested order")
+    @PostMapping("/lookup")
+    public ResponseEntity<List<UserLookupDTO>> lookupUsersByIds(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(usersService.getUsersByIds(ids));
     }
 
     @Operation(summary="Creates a new user")
     @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<UserDTO> createUser(@Valid @RequestBody UserDTO dto) {
+    public ResponseEntity<UserDTO> createUser(
+            @Parameter(description = "Repeating a request with the same key returns the original response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody UserDTO dto) {
+        if (idempotencyKey != null) {
+            return idempotencyStore.execute(idempotencyKey, "POST /users", dto, () -> createUserResponse(dto));
+        }
+        return createUserResponse(dto);
+    }
+
+    private ResponseEntity<UserDTO> createUserResponse(UserDTO dto) {
         UserDTO createdUser = usersService.createUser(dto);
         return  ResponseEntity.status(HttpStatus.CREATED)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -61,24 +163,58 @@ public class UsersController {
             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @Content(mediaType = "application/json",
             schema = @Schema(type = "object", example = "{\"email\": \"updated@email.com\"}"))))
     @PatchMapping("/{id}")
-    public ResponseEntity<UserDTO> updateUserFields(@PathVariable Long id, @RequestBody Map<String, Object> fields) {
+    public ResponseEntity<UserDTO> updateUserFields(
+            @Parameter(description = "Repeating a request with the same key returns the original response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id, @RequestBody Map<String, Object> fields) {
+        if (idempotencyKey != null) {
+            return idempotencyStore.execute(idempotencyKey, "PATCH /users/" + id, fields,
+                    () -> ResponseEntity.ok(usersService.updateUserFields(id, fields)));
+        }
         UserDTO updatedUser = usersService.updateUserFields(id, fields);
         return ResponseEntity.ok(updatedUser);
     }
 
     @GetMapping("/birthdate")
-    @Operation(summary = "Find users by birth date range ")
-    public ResponseEntity<List<UserDTO>> getUsersByBirthDateRange(
+    @Operation(summary = "Find users by birth date range ",
+            description = "With fields, each user has only the listed fields",
+            responses = @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = UserDTO.class)))))
+    public ResponseEntity<List<?>> getUsersByBirthDateRange(
             @Parameter(description = "Start date (format: yyyy-MM-dd)", example = "1980-10-10", required = true)
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date from,
 
             @Parameter(description = "End date (format: yyyy-MM-dd)", example = "2000-10-10", required = true)
-            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to) {
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to,
+
+            @Parameter(description = "Comma separated fields to return, all by default", example = "id,email,firstName")
+            @RequestParam(required = false) String fields) {
         if (from.after(to)) {
             throw new ValidationException("Invalid date range: 'from' should be before 'to'");
         }
-        List<UserDTO> users = usersService.getUsersByBirthDateRange(from, to);
-        return ResponseEntity.ok(users);
+        UserFieldSet fieldSet = UserFieldSet.parse(fields);
+        if (fieldSet.isAll()) {
+            List<UserDTO> users = usersService.getUsersByBirthDateRange(from, to);
+            return ResponseEntity.ok(users);
+        }
+        return ResponseEntity.ok(usersService.getUsersByBirthDateRange(from, to, fieldSet).stream()
+                .map(user -> fieldSet.select(objectMapper, user))
+                .toList());
+    }
+
+    @GetMapping("/birthdays")
+    @Operation(summary = "Find users whose birthday falls in a day range of the year")
+    public ResponseEntity<List<UserDTO>> getUsersByBirthdayRange(
+            @Parameter(description = "First day (format: MM-dd)", example = "12-25", required = true)
+            @RequestParam @DateTimeFormat(pattern = "MM-dd") MonthDay from,
+
+            @Parameter(description = "Last day (format: MM-dd), before 'from' when the range wraps over the year end",
+                    example = "01-05", required = true)
+            @RequestParam @DateTimeFormat(pattern = "MM-dd") MonthDay to,
+
+            @Parameter(description = "Year of the range, the current year by default", example = "2025")
+            @RequestParam(required = false) Year year) {
+        return ResponseEntity.ok(usersService.getUsersByBirthdayRange(from, to, year == null ? Year.now() : year));
     }
 
     @Operation(summary = "Delete user")
@@ -1,22 +1,30 @@
 package com.clearsolution.testassigment.exceptions;
 
+import io.r2dbc.spi.R2dbcException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
 @RestControllerAdvice
 public class GlobalExceptionsHandler {
+    private static final String UNIQUE_VIOLATION = "23505";
+    // named in schema.sql, UserEntity and shard-schema.sql; the databases quote the name in the error message
+    private static final Set<String> EMAIL_CONSTRAINTS = Set.of("users_email_key", "user_emails_pkey");
 
     @ExceptionHandler(UserNotFoundException.class)
     public ResponseEntity<ErrorModel> handleUserNotFoundException(RuntimeException ex) {
@@ -43,6 +51,17 @@ public class GlobalExceptionsHandler {
                 .body(errors);
     }
 
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleWebExchangeBindExceptions(WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getBindingResult().getFieldErrors().forEach(error -> {
+            errors.put(error.getField(), error.getDefaultMessage());
+        });
+        return ResponseEntity
+                .badRequest()
+                .body(errors);
+    }
+
     @ExceptionHandler(TransactionSystemException.class)
     public ResponseEntity<Map<String, String>> handleConstraintViolationException(TransactionSystemException ex) {
         Map<String, String> errors = new LinkedHashMap<>();
@@ -59,6 +78,40 @@ public class GlobalExceptionsHandler {
                 .body(errors);
     }
 
+    /**
+     * Only a unique violation of the email constraints is a conflict with another user, any other integrity
+     * violation is handled like the rest of the unexpected exceptions.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<?> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        if (!isEmailTaken(ex)) {
+            return handleGeneralExceptions(ex);
+        }
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(new ErrorModel("User conflicts with an existing user, the email is already taken", LocalDateTime.now()));
+    }
+
+    static boolean isEmailTaken(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                return isEmailUniqueViolation(sqlException.getSQLState(), sqlException.getMessage());
+            }
+            if (cause instanceof R2dbcException r2dbcException) {
+                return isEmailUniqueViolation(r2dbcException.getSqlState(), r2dbcException.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEmailUniqueViolation(String sqlState, String message) {
+        if (!UNIQUE_VIOLATION.equals(sqlState) || message == null) {
+            return false;
+        }
+        String lowerCaseMessage = message.toLowerCase(Locale.ROOT);
+        return EMAIL_CONSTRAINTS.stream().anyMatch(lowerCaseMessage::contains);
+    }
+
     @ExceptionHandler(Exception.class)
     public final ResponseEntity<Map<String, String>> handleGeneralExceptions(Exception ex) {
         Map<String, String> errors = new LinkedHashMap<>();
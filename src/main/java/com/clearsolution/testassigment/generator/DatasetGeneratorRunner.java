@@ -0,0 +1,75 @@
+package com.clearsolution.testassigment.generator;
+
+import com.clearsolution.testassigment.configs.GeneratorProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the users table with {@code users.generator.count} generated users when the application runs with
+ * the {@code generate} profile, then stops the application unless {@code users.generator.exit-when-done}
+ * is off. Sharded databases are not supported: the runner refuses to start when {@code users.sharding.enabled}
+ * is set.
+ */
+@Component
+@Profile("generate")
+public class DatasetGeneratorRunner implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(DatasetGeneratorRunner.class);
+
+    private final DataSource dataSource;
+    private final GeneratorProperties properties;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${MIN_USER_AGE}")
+    private int minUserAge;
+
+    @Value("${users.sharding.enabled:false}")
+    private boolean shardingEnabled;
+
+    @Autowired
+    public DatasetGeneratorRunner(DataSource dataSource, GeneratorProperties properties,
+                                  ConfigurableApplicationContext context) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (shardingEnabled) {
+            // the loader writes the primary datasource only, it knows nothing about shard IDs or user_emails
+            throw new IllegalStateException("The generate profile can't load a sharded database, "
+                    + "turn users.sharding.enabled off and load each shard's users table separately");
+        }
+        LocalDate referenceDate = properties.getReferenceDate() != null
+                ? properties.getReferenceDate()
+                : LocalDate.now().withDayOfYear(1);
+        SyntheticUserGenerator generator = new SyntheticUserGenerator(properties.getSeed(), referenceDate,
+                properties.getMinAge() != null ? properties.getMinAge() : minUserAge, properties.getMaxAge(),
+                properties.getMeanAge(), properties.getAgeStdDev());
+        UsersBulkLoader loader = new UsersBulkLoader(dataSource, generator, referenceDate.atStartOfDay());
+
+        log.info("Generating {} users from index {} with seed {} in {} partitions", properties.getCount(),
+                properties.getFirstIndex(), properties.getSeed(), properties.getPartitions());
+        long startedAt = System.nanoTime();
+        long loaded = loader.load(properties.getFirstIndex(), properties.getCount(),
+                properties.getPartitions(), properties.getBatchSize());
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        log.info("Loaded {} users in {} ms ({} users/s)", loaded, elapsedMillis, loaded * 1000 / elapsedMillis);
+
+        if (properties.isExitWhenDone()) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+}
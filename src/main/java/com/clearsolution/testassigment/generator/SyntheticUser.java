@@ -0,0 +1,28 @@
+package com.clearsolution.testassigment.generator;
+
+import java.time.LocalDate;
+
+/**
+ * A generated user, in the form it is stored in.
+ */
+public record SyntheticUser(long index, String email, String firstName, String lastName, LocalDate birthDate,
+                            String address, String phoneNumber) {
+
+    public short birthdayMmdd() {
+        return (short) (birthDate.getMonthValue() * 100 + birthDate.getDayOfMonth());
+    }
+
+    /**
+     * Appends the user as a CSV row of {@link UsersBulkLoader#COLUMNS}; only the address needs quoting.
+     */
+    void appendCsv(StringBuilder row, String updatedAt) {
+        row.append(email).append(',')
+                .append(firstName).append(',')
+                .append(lastName).append(',')
+                .append(birthDate).append(',')
+                .append('"').append(address).append('"').append(',')
+                .append(phoneNumber).append(',')
+                .append(updatedAt).append(',')
+                .append(birthdayMmdd()).append('\n');
+    }
+}
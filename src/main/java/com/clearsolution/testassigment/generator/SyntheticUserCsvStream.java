@@ -0,0 +1,62 @@
+package com.clearsolution.testassigment.generator;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV of a range of generated users, produced while it is read so that only one chunk of rows is in
+ * memory at a time.
+ */
+class SyntheticUserCsvStream extends InputStream {
+    private static final int CHUNK_CHARS = 64 * 1024;
+
+    private final SyntheticUserGenerator generator;
+    private final long end;
+    private final String updatedAt;
+    private final StringBuilder rows = new StringBuilder(CHUNK_CHARS + 512);
+    private long next;
+    private byte[] chunk = new byte[0];
+    private int position;
+
+    SyntheticUserCsvStream(SyntheticUserGenerator generator, long from, long to, String updatedAt) {
+        this.generator = generator;
+        this.next = from;
+        this.end = to;
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public int read() {
+        if (position == chunk.length && !fill()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (position == chunk.length && !fill()) {
+            return -1;
+        }
+        int copied = Math.min(length, chunk.length - position);
+        System.arraycopy(chunk, position, buffer, offset, copied);
+        position += copied;
+        return copied;
+    }
+
+    private boolean fill() {
+        rows.setLength(0);
+        while (rows.length() < CHUNK_CHARS && next < end) {
+            generator.user(next++).appendCsv(rows, updatedAt);
+        }
+        if (rows.length() == 0) {
+            return false;
+        }
+        chunk = rows.toString().getBytes(StandardCharsets.UTF_8);
+        position = 0;
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+package com.clearsolution.testassigment.generator;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates valid users from a seed. Every user is derived from the seed and its index alone, so any range
+ * of users can be generated independently, in any order and in parallel, with the same result.
+ * <p>
+ * Emails are unique per index, phone numbers match the {@code UserDTO} pattern and ages follow a normal
+ * distribution around {@code meanAge}, clipped to {@code [minAge, maxAge]} at {@code referenceDate}.
+ */
+public class SyntheticUserGenerator {
+    private static final double DAYS_PER_YEAR = 365.2425;
+    private static final String[] FIRST_NAMES = {
+            "Roman", "Olena", "Andrii", "Iryna", "Taras", "Oksana", "Dmytro", "Natalia", "Serhii", "Kateryna",
+            "Maksym", "Yulia", "Oleksandr", "Sofia", "Bohdan", "Anna", "Volodymyr", "Maria", "Ihor", "Daria",
+            "James", "Emma", "Lucas", "Mia", "Noah", "Olivia", "Liam", "Ava", "Mateo", "Chloe"};
+    private static final String[] LAST_NAMES = {
+            "Kushnir", "Shevchenko", "Bondarenko", "Kovalenko", "Tkachenko", "Kravchenko", "Oliinyk", "Melnyk",
+            "Boiko", "Koval", "Marchenko", "Lysenko", "Rudenko", "Savchenko", "Petrenko", "Smith", "Johnson",
+            "Brown", "Garcia", "Miller", "Davis", "Martin", "Moreau", "Novak", "Horvat"};
+    private static final String[] STREETS = {
+            "Khreshchatyk St", "Shevchenko Ave", "Franka St", "Sadova St", "Lesi Ukrainky Blvd", "Main St",
+            "Oak Ave", "Park Rd", "Lake St", "Hill Rd"};
+    private static final String[] CITIES = {
+            "Kyiv", "Lviv", "Odesa", "Kharkiv", "Dnipro", "Vinnytsia", "Poltava", "Chernihiv", "Uzhhorod", "Ternopil"};
+
+    private final long seed;
+    private final LocalDate referenceDate;
+    private final LocalDate latestBirthDate;
+    private final LocalDate earliestBirthDate;
+    private final int minAge;
+    private final int maxAge;
+    private final double meanAge;
+    private final double ageStdDev;
+
+    public SyntheticUserGenerator(long seed, LocalDate referenceDate, int minAge, int maxAge,
+                                  double meanAge, double ageStdDev) {
+        if (minAge > maxAge) {
+            throw new IllegalArgumentException("minAge " + minAge + " is greater than maxAge " + maxAge);
+        }
+        this.seed = seed;
+        this.referenceDate = referenceDate;
+        this.latestBirthDate = referenceDate.minusYears(minAge).minusDays(1);
+        // one day short of turning maxAge + 1
+        this.earliestBirthDate = referenceDate.minusYears(maxAge + 1L).plusDays(1);
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.meanAge = meanAge;
+        this.ageStdDev = ageStdDev;
+    }
+
+    public SyntheticUser user(long index) {
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index)));
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String email = (firstName + '.' + lastName + '.' + index + "@example.com").toLowerCase(Locale.ROOT);
+        String address = (1 + random.nextInt(250)) + " " + STREETS[random.nextInt(STREETS.length)]
+                + ", " + CITIES[random.nextInt(CITIES.length)];
+        return new SyntheticUser(index, email, firstName, lastName, birthDate(random), address, phoneNumber(random));
+    }
+
+    private LocalDate birthDate(SplittableRandom random) {
+        double age = Math.min(maxAge + 1, Math.max(minAge, meanAge + ageStdDev * random.nextGaussian()));
+        LocalDate birthDate = referenceDate.minusDays((long) (age * DAYS_PER_YEAR));
+        if (birthDate.isAfter(latestBirthDate)) {
+            return latestBirthDate;
+        }
+        return birthDate.isBefore(earliestBirthDate) ? earliestBirthDate : birthDate;
+    }
+
+    private static String phoneNumber(SplittableRandom random) {
+        char[] phone = {'+', '3', '8', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0'};
+        for (int i = 4; i < phone.length; i++) {
+            phone[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(phone);
+    }
+
+    // SplitMix64 finalizer, spreads neighbouring indexes over unrelated seeds
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
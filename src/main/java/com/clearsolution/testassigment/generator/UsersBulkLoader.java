@@ -0,0 +1,125 @@
+package com.clearsolution.testassigment.generator;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams generated users into the {@code users} table, one partition of the index range per connection.
+ * PostgreSQL is loaded with {@code COPY ... FROM STDIN}, fed by a CSV stream generated on the fly; other
+ * databases, like the in-memory H2 used for load tests, get batched inserts committed per batch.
+ * IDs are left to the database.
+ */
+public class UsersBulkLoader {
+    static final String COLUMNS = "email, first_name, last_name, birth_date, address, phone_number, updated_at, birthday_mmdd";
+    private static final Logger log = LoggerFactory.getLogger(UsersBulkLoader.class);
+
+    private final DataSource dataSource;
+    private final SyntheticUserGenerator generator;
+    private final LocalDateTime updatedAt;
+
+    public UsersBulkLoader(DataSource dataSource, SyntheticUserGenerator generator, LocalDateTime updatedAt) {
+        this.dataSource = dataSource;
+        this.generator = generator;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Loads the users with indexes from {@code firstIndex} to {@code firstIndex + count}.
+     *
+     * @return the number of loaded users
+     */
+    public long load(long firstIndex, long count, int partitions, int batchSize) throws SQLException, InterruptedException {
+        boolean postgres = isPostgres();
+        int partitionCount = (int) Math.max(1, Math.min(partitions, count));
+        ExecutorService executor = Executors.newFixedThreadPool(partitionCount, runnable -> {
+            Thread thread = new Thread(runnable, "users-bulk-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> loads = new ArrayList<>();
+            for (int partition = 0; partition < partitionCount; partition++) {
+                long from = firstIndex + count * partition / partitionCount;
+                long to = firstIndex + count * (partition + 1) / partitionCount;
+                loads.add(executor.submit(() -> postgres ? copy(from, to) : insert(from, to, batchSize)));
+            }
+            long loaded = 0;
+            for (Future<Long> load : loads) {
+                loaded += load.get();
+            }
+            return loaded;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Unable to load generated users", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long copy(long from, long to) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            long copied = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY users (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)",
+                    new SyntheticUserCsvStream(generator, from, to, updatedAt.toString().replace('T', ' ')));
+            log.debug("Copied users {} to {}", from, to);
+            return copied;
+        } catch (java.io.IOException e) {
+            throw new SQLException("Unable to stream generated users " + from + " to " + to, e);
+        }
+    }
+
+    private long insert(long from, long to, int batchSize) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            Timestamp timestamp = Timestamp.valueOf(updatedAt);
+            for (long index = from; index < to; index++) {
+                SyntheticUser user = generator.user(index);
+                statement.setString(1, user.email());
+                statement.setString(2, user.firstName());
+                statement.setString(3, user.lastName());
+                statement.setObject(4, user.birthDate());
+                statement.setString(5, user.address());
+                statement.setString(6, user.phoneNumber());
+                statement.setTimestamp(7, timestamp);
+                statement.setShort(8, user.birthdayMmdd());
+                statement.addBatch();
+                if ((index - from + 1) % batchSize == 0) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+            return to - from;
+        }
+    }
+
+    private boolean isPostgres() throws SQLException {
+        try {
+            return "PostgreSQL".equals(JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+        } catch (Exception e) {
+            throw new SQLException("Unable to detect the database to load users into", e);
+        }
+    }
+}
@@ -47,6 +47,21 @@ public class UserDTO {
         }
 
 
+        /**
+         * @return a copy that shares no mutable state with this user, so cached users can be handed out safely
+         */
+        public UserDTO copy() {
+                return new Builder()
+                        .id(id)
+                        .email(email)
+                        .firstName(firstName)
+                        .lastName(lastName)
+                        .birthDate(birthDate == null ? null : new Date(birthDate.getTime()))
+                        .address(address)
+                        .phoneNumber(phoneNumber)
+                        .build();
+        }
+
         public static final class Builder {
                 private Long id;
                 private String email;
@@ -0,0 +1,17 @@
+package com.clearsolution.testassigment.models.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a multi-get response: the requested ID and the user, or {@code found = false}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLookupDTO {
+        private Long id;
+        private boolean found;
+        private UserDTO user;
+}
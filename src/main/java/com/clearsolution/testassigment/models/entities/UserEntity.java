@@ -5,15 +5,23 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Data;
+import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.format.annotation.DateTimeFormat;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.Locale;
 
 @Entity
-@Table(name="users")
+@Table(name="users", indexes = @Index(name = "users_birthday_mmdd_idx", columnList = "birthday_mmdd, id"),
+        uniqueConstraints = @UniqueConstraint(name = "users_email_key", columnNames = "email"))
+@org.springframework.data.relational.core.mapping.Table("users")
 @Data
 public class UserEntity {
     @Id
+    @org.springframework.data.annotation.Id
     @Column(name="id")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -38,5 +46,33 @@ public class UserEntity {
     @Column(name="phone_number")
     @Pattern(regexp="^(|\\+\\d{12})$", message="Phone number should be empty or starts from '+' and contains only 12 digits")
     private String phoneNumber;
+    @UpdateTimestamp
+    @Column(name="updated_at")
+    private Instant updatedAt;
+    // Birthday as month * 100 + day, so that birthdays of any year can be looked up by one index range
+    @Column(name="birthday_mmdd")
+    private Short birthdayMmdd;
 
+    /**
+     * Brings the user to the form it is stored in: the email in its canonical form and the birthday
+     * matching the birth date.
+     */
+    @PrePersist
+    @PreUpdate
+    public void normalize() {
+        email = normalizeEmail(email);
+        if (birthDate == null) {
+            birthdayMmdd = null;
+            return;
+        }
+        LocalDate birthDay = LocalDate.ofInstant(Instant.ofEpochMilli(birthDate.getTime()), ZoneId.systemDefault());
+        birthdayMmdd = (short) (birthDay.getMonthValue() * 100 + birthDay.getDayOfMonth());
+    }
+
+    /**
+     * @return the canonical form of an email, the one stored and looked up by
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
 }
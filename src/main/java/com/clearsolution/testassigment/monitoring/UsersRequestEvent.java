@@ -0,0 +1,30 @@
+package com.clearsolution.testassigment.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event around a request handled by the users controller.
+ */
+@Name(UsersRequestEvent.NAME)
+@Label("Users API Request")
+@Category({"Users API", "HTTP"})
+@StackTrace(false)
+public class UsersRequestEvent extends Event {
+    public static final String NAME = "com.clearsolution.users.Request";
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Query")
+    String query;
+
+    @Label("Status")
+    int status;
+}
@@ -0,0 +1,104 @@
+package com.clearsolution.testassigment.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.function.Supplier;
+
+/**
+ * JFR event around a users service operation, with the time it spent in the database and in mapping
+ * entities to DTOs. When no recording asks for the event, the timing helpers only call through.
+ */
+@Name(UsersServiceEvent.NAME)
+@Label("Users Service Call")
+@Category({"Users API", "Service"})
+@StackTrace(false)
+public class UsersServiceEvent extends Event {
+    public static final String NAME = "com.clearsolution.users.ServiceCall";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("User ID")
+    private long userId;
+
+    @Label("Range Days")
+    @Description("Number of days in the searched birth date range")
+    private long rangeDays;
+
+    @Label("Rows")
+    private int rows;
+
+    @Label("Database Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long databaseTime;
+
+    @Label("Mapping Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long mappingTime;
+
+    public static UsersServiceEvent start(String operation) {
+        UsersServiceEvent event = new UsersServiceEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.begin();
+        }
+        return event;
+    }
+
+    public UsersServiceEvent userId(Long userId) {
+        this.userId = userId == null ? 0 : userId;
+        return this;
+    }
+
+    public UsersServiceEvent rangeDays(long rangeDays) {
+        this.rangeDays = rangeDays;
+        return this;
+    }
+
+    public void rows(int rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Runs a repository call, counting its time as database time.
+     */
+    public <T> T query(Supplier<T> query) {
+        if (!isEnabled()) {
+            return query.get();
+        }
+        long startedAt = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            databaseTime += System.nanoTime() - startedAt;
+        }
+    }
+
+    public void query(Runnable query) {
+        query(() -> {
+            query.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs an entity to DTO conversion, counting its time as mapping time.
+     */
+    public <T> T map(Supplier<T> mapping) {
+        if (!isEnabled()) {
+            return mapping.get();
+        }
+        long startedAt = System.nanoTime();
+        try {
+            return mapping.get();
+        } finally {
+            mappingTime += System.nanoTime() - startedAt;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.clearsolution.testassigment.repositories;
+
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+@Repository
+public interface ReactiveUsersRepository extends R2dbcRepository<UserEntity, Long> {
+    Mono<UserEntity> findUserEntityByEmail(String email);
+
+    Flux<UserEntity> findUserEntityByBirthDateBetween(Date from, Date to);
+
+    @Query("SELECT * FROM users WHERE birthday_mmdd BETWEEN :from AND :to ORDER BY birthday_mmdd, id")
+    Flux<UserEntity> findBirthdaysBetween(@Param("from") Short from, @Param("to") Short to);
+
+    @Query("SELECT * FROM users WHERE birthday_mmdd >= :from OR birthday_mmdd <= :to "
+            + "ORDER BY CASE WHEN birthday_mmdd >= :from THEN 0 ELSE 1 END, birthday_mmdd, id")
+    Flux<UserEntity> findBirthdaysAcrossYearEnd(@Param("from") Short from, @Param("to") Short to);
+}
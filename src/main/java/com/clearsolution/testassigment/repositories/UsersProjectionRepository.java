@@ -0,0 +1,18 @@
+package com.clearsolution.testassigment.repositories;
+
+import com.clearsolution.testassigment.models.entities.UserEntity;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Queries that read only some user fields. The returned entities have the other fields left {@code null}
+ * and are not managed, so they must not be saved.
+ */
+public interface UsersProjectionRepository {
+    Optional<UserEntity> findFieldsById(Long id, Collection<String> fields);
+
+    List<UserEntity> findFieldsByBirthDateBetween(Date from, Date to, Collection<String> fields);
+}
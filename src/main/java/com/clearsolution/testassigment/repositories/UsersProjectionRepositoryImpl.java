@@ -0,0 +1,64 @@
+package com.clearsolution.testassigment.repositories;
+
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Builds tuple queries selecting only the requested columns.
+ */
+public class UsersProjectionRepositoryImpl implements UsersProjectionRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<UserEntity> findFieldsById(Long id, Collection<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<UserEntity> user = query.from(UserEntity.class);
+        query.multiselect(selections(user, fields)).where(builder.equal(user.get("id"), id));
+        return entityManager.createQuery(query).getResultStream()
+                .findFirst()
+                .map(tuple -> toEntity(tuple, fields));
+    }
+
+    @Override
+    public List<UserEntity> findFieldsByBirthDateBetween(Date from, Date to, Collection<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<UserEntity> user = query.from(UserEntity.class);
+        query.multiselect(selections(user, fields))
+                .where(builder.between(user.get("birthDate"), from, to))
+                .orderBy(builder.asc(user.get("birthDate")), builder.asc(user.get("id")));
+        return entityManager.createQuery(query).getResultStream()
+                .map(tuple -> toEntity(tuple, fields))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Selection<?>> selections(Root<UserEntity> user, Collection<String> fields) {
+        return fields.stream()
+                .<Selection<?>>map(field -> user.get(field).alias(field))
+                .collect(Collectors.toList());
+    }
+
+    private static UserEntity toEntity(Tuple tuple, Collection<String> fields) {
+        BeanWrapper user = new BeanWrapperImpl(new UserEntity());
+        for (String field : fields) {
+            user.setPropertyValue(field, tuple.get(field));
+        }
+        return (UserEntity) user.getWrappedInstance();
+    }
+}
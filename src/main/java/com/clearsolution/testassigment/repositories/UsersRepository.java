@@ -1,16 +1,50 @@
 package com.clearsolution.testassigment.repositories;
 
 import com.clearsolution.testassigment.models.entities.UserEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UsersRepository extends JpaRepository<UserEntity, Long> {
+public interface UsersRepository extends JpaRepository<UserEntity, Long>, UsersStore, UsersProjectionRepository {
+    // Redeclared so that calls on this interface resolve to one method rather than to both supertypes
+    @Override
+    Optional<UserEntity> findById(Long id);
+
+    @Override
+    boolean existsById(Long id);
+
+    @Override
+    List<UserEntity> findAllById(Iterable<Long> ids);
+
+    @Override
+    <S extends UserEntity> S save(S user);
+
+    @Override
+    void deleteById(Long id);
+
     Optional<UserEntity> findUserEntityByEmail(String email);
 
     List<UserEntity> findUserEntityByBirthDateBetween(Date from, Date to);
+
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<UserEntity> findUserEntityByUpdatedAtAfter(Instant updatedAt);
+
+    @Query("select u.id from UserEntity u where u.id > :id order by u.id")
+    List<Long> findIdsAfter(@Param("id") Long id, Pageable pageable);
+
+    @Query("select u from UserEntity u where u.birthdayMmdd between :from and :to order by u.birthdayMmdd, u.id")
+    List<UserEntity> findBirthdaysBetween(@Param("from") Short from, @Param("to") Short to);
+
+    @Query("select u from UserEntity u where u.birthdayMmdd >= :from or u.birthdayMmdd <= :to "
+            + "order by case when u.birthdayMmdd >= :from then 0 else 1 end, u.birthdayMmdd, u.id")
+    List<UserEntity> findBirthdaysAcrossYearEnd(@Param("from") Short from, @Param("to") Short to);
 }
@@ -0,0 +1,40 @@
+package com.clearsolution.testassigment.repositories;
+
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The user storage operations the users service relies on, implemented by the JPA {@link UsersRepository}
+ * and by the sharded storage. Services depend on this interface rather than on the whole
+ * {@code JpaRepository}, so that every storage supports every call they make.
+ */
+public interface UsersStore extends UsersProjectionRepository {
+    Optional<UserEntity> findById(Long id);
+
+    boolean existsById(Long id);
+
+    List<UserEntity> findAllById(Iterable<Long> ids);
+
+    Optional<UserEntity> findUserEntityByEmail(String email);
+
+    List<UserEntity> findUserEntityByBirthDateBetween(Date from, Date to);
+
+    List<UserEntity> findBirthdaysBetween(Short from, Short to);
+
+    List<UserEntity> findBirthdaysAcrossYearEnd(Short from, Short to);
+
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<Long> findIdsAfter(Long id, Pageable pageable);
+
+    List<UserEntity> findUserEntityByUpdatedAtAfter(Instant updatedAt);
+
+    <S extends UserEntity> S save(S user);
+
+    void deleteById(Long id);
+}
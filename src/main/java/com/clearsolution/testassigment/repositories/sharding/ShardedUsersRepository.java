@@ -0,0 +1,513 @@
+package com.clearsolution.testassigment.repositories.sharding;
+
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import com.clearsolution.testassigment.repositories.UsersStore;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.PostgresSequenceMaxValueIncrementer;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Stores users across several datasources.
+ * <p>
+ * A new user is placed on the shard chosen by the hash of its email and gets the ID
+ * {@code sequence * shardCount + shard}, so IDs are unique across shards and every later access
+ * by ID is routed with {@code id % shardCount}. Email lookups go through the {@code user_emails}
+ * table, stored on the shard chosen by the email hash. A new user and its email entry are written in one
+ * transaction. When an update changes the email, the new email is reserved first, so a taken email fails
+ * before the user changes, then the user is updated and the old email released; a failed user update
+ * releases the reservation again. Lookups check the email of the found user, so an entry left behind by a
+ * failed release never resolves to the wrong user.
+ * <p>
+ * Birth date range searches run on all shards in parallel and merge the sorted per-shard results. The first
+ * shard is queried on the calling thread, the others on a pool with as many threads as the shards have
+ * connections, so concurrent requests don't queue behind one thread per shard.
+ * <p>
+ * Routing depends on the number and the order of the shards, so every shard records its position in the
+ * {@code users_shard_layout} table and the repository refuses to start when the configured shards don't
+ * match it; changing the layout needs the rows to be moved first.
+ */
+public class ShardedUsersRepository implements UsersStore, AutoCloseable {
+    private static final String SCHEMA = "db/sharding/shard-schema.sql";
+    private static final String SEQUENCE = "users_shard_id_seq";
+    // Connections assumed for a datasource that isn't a Hikari pool, the Hikari default
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final String COLUMNS = "id, email, first_name, last_name, birth_date, address, phone_number, updated_at, birthday_mmdd";
+    private static final Comparator<UserEntity> BY_BIRTH_DATE = Comparator
+            .comparing(UserEntity::getBirthDate, Comparator.nullsFirst(Comparator.<Date>naturalOrder()))
+            .thenComparing(UserEntity::getId);
+    private static final Map<String, String> FIELD_COLUMNS = Map.of(
+            "id", "id", "email", "email", "firstName", "first_name", "lastName", "last_name",
+            "birthDate", "birth_date", "address", "address", "phoneNumber", "phone_number");
+    private static final Comparator<UserEntity> BY_BIRTHDAY = Comparator
+            .comparing(UserEntity::getBirthdayMmdd)
+            .thenComparing(UserEntity::getId);
+    private static final RowMapper<UserEntity> USER_ROW_MAPPER = (rs, rowNum) -> {
+        UserEntity user = new UserEntity();
+        user.setId(rs.getLong("id"));
+        user.setEmail(rs.getString("email"));
+        user.setFirstName(rs.getString("first_name"));
+        user.setLastName(rs.getString("last_name"));
+        java.sql.Date birthDate = rs.getDate("birth_date");
+        user.setBirthDate(birthDate == null ? null : new Date(birthDate.getTime()));
+        user.setAddress(rs.getString("address"));
+        user.setPhoneNumber(rs.getString("phone_number"));
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        user.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
+        short birthdayMmdd = rs.getShort("birthday_mmdd");
+        user.setBirthdayMmdd(rs.wasNull() ? null : birthdayMmdd);
+        return user;
+    };
+
+    private final List<DataSource> dataSources;
+    private final List<Shard> shards = new ArrayList<>();
+    private final ExecutorService scatterExecutor;
+
+    public ShardedUsersRepository(List<DataSource> dataSources) {
+        this.dataSources = List.copyOf(dataSources);
+        int connections = 0;
+        for (DataSource dataSource : this.dataSources) {
+            new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(dataSource);
+            Shard shard = new Shard(dataSource);
+            checkLayout(shard, shards.size(), this.dataSources.size());
+            shards.add(shard);
+            connections += dataSource instanceof HikariDataSource pool ? pool.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+        }
+        this.scatterExecutor = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "users-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Optional<UserEntity> findById(Long id) {
+        return shardOf(id).jdbc.query("SELECT " + COLUMNS + " FROM users WHERE id = ?", USER_ROW_MAPPER, id)
+                .stream().findFirst();
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        Integer count = shardOf(id).jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, id);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public List<UserEntity> findAllById(Iterable<Long> ids) {
+        List<Long> requestedIds = new ArrayList<>();
+        ids.forEach(requestedIds::add);
+        return this.<List<UserEntity>>scatter(shard -> {
+            List<Long> shardIds = requestedIds.stream()
+                    .filter(id -> shardOf(id) == shard)
+                    .collect(Collectors.toList());
+            if (shardIds.isEmpty()) {
+                return List.of();
+            }
+            return shard.namedJdbc.query("SELECT " + COLUMNS + " FROM users WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", shardIds), USER_ROW_MAPPER);
+        }).stream().flatMap(Collection::stream).collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<UserEntity> findUserEntityByEmail(String email) {
+        return emailShardOf(email).jdbc.queryForList("SELECT user_id FROM user_emails WHERE email = ?", Long.class, email)
+                .stream().findFirst()
+                .flatMap(this::findById)
+                .filter(user -> email.equals(user.getEmail()));
+    }
+
+    /**
+     * Queries every shard in parallel and merges the per-shard results, each sorted by birth date and ID.
+     */
+    @Override
+    public List<UserEntity> findUserEntityByBirthDateBetween(Date from, Date to) {
+        List<List<UserEntity>> perShard = scatter(shard -> shard.jdbc.query(
+                "SELECT " + COLUMNS + " FROM users WHERE birth_date BETWEEN ? AND ? ORDER BY birth_date, id",
+                USER_ROW_MAPPER, new java.sql.Date(from.getTime()), new java.sql.Date(to.getTime())));
+        return mergeSorted(perShard);
+    }
+
+    @Override
+    public Optional<UserEntity> findFieldsById(Long id, Collection<String> fields) {
+        return shardOf(id).jdbc.query("SELECT " + projectionColumns(fields) + " FROM users WHERE id = ?",
+                        projectionRowMapper(fields), id)
+                .stream().findFirst();
+    }
+
+    /**
+     * Like {@link #findUserEntityByBirthDateBetween(Date, Date)}, reading only the given fields; the birth
+     * date and the ID are read in any case to merge the shards, and dropped again when not asked for.
+     */
+    @Override
+    public List<UserEntity> findFieldsByBirthDateBetween(Date from, Date to, Collection<String> fields) {
+        Set<String> mergeFields = new LinkedHashSet<>(fields);
+        mergeFields.add("id");
+        mergeFields.add("birthDate");
+        List<UserEntity> merged = mergeSorted(scatter(shard -> shard.jdbc.query(
+                "SELECT " + projectionColumns(mergeFields) + " FROM users WHERE birth_date BETWEEN ? AND ? ORDER BY birth_date, id",
+                projectionRowMapper(mergeFields), new java.sql.Date(from.getTime()), new java.sql.Date(to.getTime()))));
+        for (UserEntity user : merged) {
+            if (!fields.contains("id")) {
+                user.setId(null);
+            }
+            if (!fields.contains("birthDate")) {
+                user.setBirthDate(null);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public List<UserEntity> findBirthdaysBetween(Short from, Short to) {
+        return mergeSorted(scatter(shard -> shard.jdbc.query(
+                "SELECT " + COLUMNS + " FROM users WHERE birthday_mmdd BETWEEN ? AND ? ORDER BY birthday_mmdd, id",
+                USER_ROW_MAPPER, from, to)), BY_BIRTHDAY);
+    }
+
+    /**
+     * Birthdays from {@code from} to the year end followed by the ones from the year start to {@code to}.
+     */
+    @Override
+    public List<UserEntity> findBirthdaysAcrossYearEnd(Short from, Short to) {
+        Comparator<UserEntity> byWindowPosition = Comparator
+                .comparingInt((UserEntity user) -> user.getBirthdayMmdd() >= from ? 0 : 1)
+                .thenComparing(BY_BIRTHDAY);
+        return mergeSorted(scatter(shard -> shard.jdbc.query(
+                "SELECT " + COLUMNS + " FROM users WHERE birthday_mmdd >= ? OR birthday_mmdd <= ? "
+                        + "ORDER BY CASE WHEN birthday_mmdd >= ? THEN 0 ELSE 1 END, birthday_mmdd, id",
+                USER_ROW_MAPPER, from, to, from)), byWindowPosition);
+    }
+
+    @Override
+    public List<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable) {
+        int limit = pageable.getPageSize();
+        return scatter(shard -> shard.jdbc.query(
+                "SELECT " + COLUMNS + " FROM users WHERE id > ? ORDER BY id LIMIT ?", USER_ROW_MAPPER, id, limit))
+                .stream()
+                .flatMap(Collection::stream)
+                .sorted(Comparator.comparing(UserEntity::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Long> findIdsAfter(Long id, Pageable pageable) {
+        int limit = pageable.getPageSize();
+        return scatter(shard -> shard.jdbc.queryForList(
+                "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?", Long.class, id, limit))
+                .stream()
+                .flatMap(Collection::stream)
+                .sorted()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<UserEntity> findUserEntityByUpdatedAtAfter(Instant updatedAt) {
+        return scatter(shard -> shard.jdbc.query(
+                "SELECT " + COLUMNS + " FROM users WHERE updated_at > ?", USER_ROW_MAPPER, Timestamp.from(updatedAt)))
+                .stream()
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList());
+    }
+
+    public long count() {
+        return scatter(shard -> shard.jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Inserts the user when its ID is empty or unknown, like a JPA merge, otherwise updates it.
+     */
+    @Override
+    public <S extends UserEntity> S save(S user) {
+        user.normalize();
+        Optional<UserEntity> existingUser = user.getId() == null || user.getId() <= 0
+                ? Optional.empty()
+                : findById(user.getId());
+        if (existingUser.isEmpty()) {
+            insert(user);
+        } else {
+            update(user, existingUser.get());
+        }
+        return user;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        findById(id).ifPresent(user -> {
+            Shard userShard = shardOf(id);
+            Shard emailShard = emailShardOf(user.getEmail());
+            userShard.transaction.executeWithoutResult(status -> {
+                userShard.jdbc.update("DELETE FROM users WHERE id = ?", id);
+                if (emailShard == userShard) {
+                    deleteEmail(userShard, user.getEmail(), id);
+                }
+            });
+            if (emailShard != userShard) {
+                deleteEmail(emailShard, user.getEmail(), id);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws Exception {
+        scatterExecutor.shutdownNow();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private void insert(UserEntity user) {
+        int shardIndex = emailShardIndex(user.getEmail());
+        Shard shard = shards.get(shardIndex);
+        user.setId(shard.idIncrementer.nextLongValue() * shards.size() + shardIndex);
+        user.setUpdatedAt(Instant.now());
+        shard.transaction.executeWithoutResult(status -> {
+            shard.jdbc.update("INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                    toSqlDate(user.getBirthDate()), user.getAddress(), user.getPhoneNumber(),
+                    Timestamp.from(user.getUpdatedAt()), user.getBirthdayMmdd());
+            insertEmail(shard, user.getEmail(), user.getId());
+        });
+    }
+
+    private void update(UserEntity user, UserEntity existingUser) {
+        Shard userShard = shardOf(user.getId());
+        boolean emailChanged = !Objects.equals(existingUser.getEmail(), user.getEmail());
+        Shard oldEmailShard = emailShardOf(existingUser.getEmail());
+        Shard newEmailShard = emailShardOf(user.getEmail());
+        boolean reservedElsewhere = emailChanged && newEmailShard != userShard;
+        user.setUpdatedAt(Instant.now());
+        if (reservedElsewhere) {
+            insertEmail(newEmailShard, user.getEmail(), user.getId());
+        }
+        try {
+            userShard.transaction.executeWithoutResult(status -> {
+                if (emailChanged && newEmailShard == userShard) {
+                    insertEmail(userShard, user.getEmail(), user.getId());
+                }
+                userShard.jdbc.update("UPDATE users SET email = ?, first_name = ?, last_name = ?, birth_date = ?, "
+                                + "address = ?, phone_number = ?, updated_at = ?, birthday_mmdd = ? WHERE id = ?",
+                        user.getEmail(), user.getFirstName(), user.getLastName(), toSqlDate(user.getBirthDate()),
+                        user.getAddress(), user.getPhoneNumber(), Timestamp.from(user.getUpdatedAt()),
+                        user.getBirthdayMmdd(), user.getId());
+                if (emailChanged && oldEmailShard == userShard) {
+                    deleteEmail(userShard, existingUser.getEmail(), user.getId());
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            if (reservedElsewhere) {
+                try {
+                    deleteEmail(newEmailShard, user.getEmail(), user.getId());
+                } catch (RuntimeException releaseFailure) {
+                    e.addSuppressed(releaseFailure);
+                }
+            }
+            throw e;
+        }
+        if (emailChanged && oldEmailShard != userShard) {
+            deleteEmail(oldEmailShard, existingUser.getEmail(), user.getId());
+        }
+    }
+
+    /**
+     * Inserts the email entry; fails with a {@code DuplicateKeyException} when another user has the email.
+     */
+    private static void insertEmail(Shard shard, String email, Long userId) {
+        shard.jdbc.update("INSERT INTO user_emails (email, user_id) VALUES (?, ?)", email, userId);
+    }
+
+    private static void deleteEmail(Shard shard, String email, Long userId) {
+        shard.jdbc.update("DELETE FROM user_emails WHERE email = ? AND user_id = ?", email, userId);
+    }
+
+    /**
+     * Runs the query on every shard, the first one on the calling thread, and returns the results in shard
+     * order. A shard's exception is rethrown as it is, not wrapped in a {@link CompletionException}.
+     */
+    private <T> List<T> scatter(ShardQuery<T> query) {
+        List<CompletableFuture<T>> futures = shards.subList(1, shards.size()).stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.run(shard), scatterExecutor))
+                .collect(Collectors.toList());
+        List<T> results = new ArrayList<>(shards.size());
+        results.add(query.run(shards.get(0)));
+        for (CompletableFuture<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Records the position of a new shard, or checks that an existing one is still configured at its position.
+     */
+    private static void checkLayout(Shard shard, int shardIndex, int shardCount) {
+        List<int[]> layout = shard.jdbc.query("SELECT shard_index, shard_count FROM users_shard_layout",
+                (rs, rowNum) -> new int[]{rs.getInt("shard_index"), rs.getInt("shard_count")});
+        if (layout.isEmpty()) {
+            shard.jdbc.update("INSERT INTO users_shard_layout (shard_index, shard_count) VALUES (?, ?)", shardIndex, shardCount);
+        } else if (layout.get(0)[0] != shardIndex || layout.get(0)[1] != shardCount) {
+            throw new IllegalStateException("Users shard " + shardIndex + " of " + shardCount + " was created as shard "
+                    + layout.get(0)[0] + " of " + layout.get(0)[1] + ". Users are routed by id % shard count and the "
+                    + "email hash, so the shards can't be added, removed or reordered without moving the rows");
+        }
+    }
+
+    private static List<UserEntity> mergeSorted(List<List<UserEntity>> sortedLists) {
+        return mergeSorted(sortedLists, BY_BIRTH_DATE);
+    }
+
+    private static List<UserEntity> mergeSorted(List<List<UserEntity>> sortedLists, Comparator<UserEntity> order) {
+        PriorityQueue<MergeCursor> cursors = new PriorityQueue<>(
+                (MergeCursor left, MergeCursor right) -> order.compare(left.current, right.current));
+        int total = 0;
+        for (List<UserEntity> sortedList : sortedLists) {
+            total += sortedList.size();
+            Iterator<UserEntity> iterator = sortedList.iterator();
+            if (iterator.hasNext()) {
+                cursors.add(new MergeCursor(iterator));
+            }
+        }
+        List<UserEntity> merged = new ArrayList<>(total);
+        while (!cursors.isEmpty()) {
+            MergeCursor cursor = cursors.poll();
+            merged.add(cursor.current);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private Shard shardOf(Long id) {
+        return shards.get((int) Math.floorMod(id, (long) shards.size()));
+    }
+
+    private Shard emailShardOf(String email) {
+        return shards.get(emailShardIndex(email));
+    }
+
+    private int emailShardIndex(String email) {
+        return Math.floorMod(Objects.hashCode(email), shards.size());
+    }
+
+    private static String projectionColumns(Collection<String> fields) {
+        return fields.stream().map(FIELD_COLUMNS::get).collect(Collectors.joining(", "));
+    }
+
+    private static RowMapper<UserEntity> projectionRowMapper(Collection<String> fields) {
+        return (rs, rowNum) -> {
+            BeanWrapper user = new BeanWrapperImpl(new UserEntity());
+            for (String field : fields) {
+                Object value = rs.getObject(FIELD_COLUMNS.get(field));
+                if (value instanceof java.sql.Date date) {
+                    value = new Date(date.getTime());
+                }
+                user.setPropertyValue(field, value);
+            }
+            return (UserEntity) user.getWrappedInstance();
+        };
+    }
+
+    private static java.sql.Date toSqlDate(Date date) {
+        return date == null ? null : new java.sql.Date(date.getTime());
+    }
+
+    @FunctionalInterface
+    private interface ShardQuery<T> {
+        T run(Shard shard);
+    }
+
+    private static final class Shard {
+        private final JdbcTemplate jdbc;
+        private final NamedParameterJdbcTemplate namedJdbc;
+        private final TransactionTemplate transaction;
+        private final DataFieldMaxValueIncrementer idIncrementer;
+
+        private Shard(DataSource dataSource) {
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+            this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            this.idIncrementer = isH2(dataSource)
+                    ? new H2SequenceMaxValueIncrementer(dataSource, SEQUENCE)
+                    : new PostgresSequenceMaxValueIncrementer(dataSource, SEQUENCE);
+        }
+
+        private static boolean isH2(DataSource dataSource) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+                return "H2".equals(product);
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to detect the database of a users shard", e);
+            }
+        }
+    }
+
+    private static final class MergeCursor {
+        private final Iterator<UserEntity> iterator;
+        private UserEntity current;
+
+        private MergeCursor(Iterator<UserEntity> iterator) {
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            current = iterator.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the results of birth date range searches, keyed on the {@code (from, to)} days.
+ * <p>
+ * The cache holds at most {@code users.range-cache.max-rows} users over all results, least recently used
+ * results first out, and results live for {@code users.range-cache.ttl}. The cached ranges are kept in an
+ * interval tree, so that a write only drops the results whose range contains the old or the new birth
+ * date of the changed user. The old birth date is known for every user that is part of a cached result,
+ * and users that aren't can't be in a cached range. A load running during a write is only kept out of the
+ * cache when the write can have changed its result: the range contains the old or the new birth date, or the
+ * loaded users include the changed one. Unrelated ranges stay warm while users register.
+ * <p>
+ * Unlike {@link UserResponseCache} and the {@code users} cache, which are Caffeine caches, this one is a
+ * {@link LinkedHashMap} in access order under a lock: evicting a result also has to remove its range from the
+ * interval tree and release its users' birth days in the same step, and Caffeine runs its removal listeners
+ * asynchronously to its own eviction.
+ */
+@Component
+@Profile("!reactive")
+public class BirthDateRangeCache {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Range, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final IntervalTree ranges = new IntervalTree();
+    // Birth day of every user in a cached result, with the number of results the user is in
+    private final Map<Long, CachedBirthDay> birthDays = new HashMap<>();
+    private final List<PendingLoad> pendingLoads = new ArrayList<>();
+    private final long maxRows;
+    private final long ttlNanos;
+    private long cachedRows;
+
+    @Autowired
+    public BirthDateRangeCache(@Value("${users.range-cache.max-rows:100000}") long maxRows,
+                               @Value("${users.range-cache.ttl:10m}") Duration ttl) {
+        this.maxRows = maxRows;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * @return copies of the cached users born from {@code from} to {@code to}, loading them with
+     * {@code loader} when the range isn't cached
+     */
+    public List<UserDTO> get(Date from, Date to, Supplier<List<UserDTO>> loader) {
+        Range range = new Range(toEpochDay(from), toEpochDay(to));
+        List<UserDTO> cachedUsers = null;
+        PendingLoad load = null;
+        lock.lock();
+        try {
+            Entry entry = entries.get(range);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                cachedUsers = entry.users;
+            } else {
+                if (entry != null) {
+                    remove(range);
+                }
+                load = new PendingLoad(range);
+                pendingLoads.add(load);
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Cached results are immutable, they are copied without holding the lock
+        if (cachedUsers != null) {
+            return copies(cachedUsers);
+        }
+        List<UserDTO> users = null;
+        try {
+            users = List.copyOf(loader.get());
+        } finally {
+            lock.lock();
+            try {
+                pendingLoads.remove(load);
+                if (users != null && load.isCurrent(users) && !entries.containsKey(range) && users.size() <= maxRows) {
+                    add(range, users);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return copies(users);
+    }
+
+    /**
+     * Drops the results affected by a write to the user, and once more after the current transaction
+     * commits so that nothing read in between survives.
+     *
+     * @param birthDate the birth date the user has after the write, {@code null} when the user is deleted
+     */
+    public void onUserChanged(Long id, Date birthDate) {
+        Long newBirthDay = birthDate == null ? null : toEpochDay(birthDate);
+        evict(id, newBirthDay);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id, newBirthDay);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            pendingLoads.forEach(PendingLoad::markStale);
+            for (Range range : new ArrayList<>(entries.keySet())) {
+                remove(range);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict(Long id, Long newBirthDay) {
+        lock.lock();
+        try {
+            CachedBirthDay oldBirthDay = birthDays.get(id);
+            for (PendingLoad load : pendingLoads) {
+                if ((oldBirthDay != null && load.range.contains(oldBirthDay.day))
+                        || (newBirthDay != null && load.range.contains(newBirthDay))) {
+                    load.markStale();
+                } else {
+                    // The user may still be in the loaded result with a birth date the cache doesn't know
+                    load.changedUsers.add(id);
+                }
+            }
+            if (oldBirthDay != null) {
+                removeContaining(oldBirthDay.day);
+            }
+            if (newBirthDay != null) {
+                removeContaining(newBirthDay);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeContaining(long day) {
+        List<Range> containing = new ArrayList<>();
+        ranges.stab(day, containing);
+        for (Range range : containing) {
+            remove(range);
+        }
+    }
+
+    private void add(Range range, List<UserDTO> users) {
+        entries.put(range, new Entry(users, System.nanoTime() + ttlNanos));
+        ranges.insert(range);
+        cachedRows += users.size();
+        for (UserDTO user : users) {
+            birthDays.computeIfAbsent(user.getId(), id -> new CachedBirthDay(toEpochDay(user.getBirthDate()))).results++;
+        }
+        while (cachedRows > maxRows) {
+            remove(entries.keySet().iterator().next());
+        }
+    }
+
+    private void remove(Range range) {
+        Entry entry = entries.remove(range);
+        if (entry == null) {
+            return;
+        }
+        ranges.remove(range);
+        cachedRows -= entry.users.size();
+        for (UserDTO user : entry.users) {
+            CachedBirthDay birthDay = birthDays.get(user.getId());
+            if (birthDay != null && --birthDay.results == 0) {
+                birthDays.remove(user.getId());
+            }
+        }
+    }
+
+    private static List<UserDTO> copies(List<UserDTO> users) {
+        List<UserDTO> copies = new ArrayList<>(users.size());
+        for (UserDTO user : users) {
+            copies.add(user.copy());
+        }
+        return copies;
+    }
+
+    private static long toEpochDay(Date date) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()).toEpochDay();
+    }
+
+    private record Range(long from, long to) implements Comparable<Range> {
+        boolean contains(long day) {
+            return from <= day && day <= to;
+        }
+
+        @Override
+        public int compareTo(Range other) {
+            int byFrom = Long.compare(from, other.from);
+            return byFrom != 0 ? byFrom : Long.compare(to, other.to);
+        }
+    }
+
+    private static final class Entry {
+        private final List<UserDTO> users;
+        private final long expiresAt;
+
+        private Entry(List<UserDTO> users, long expiresAt) {
+            this.users = users;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A range being loaded, with what the writes during the load did to it.
+     */
+    private static final class PendingLoad {
+        private final Range range;
+        private final Set<Long> changedUsers = new HashSet<>();
+        private boolean stale;
+
+        private PendingLoad(Range range) {
+            this.range = range;
+        }
+
+        private void markStale() {
+            stale = true;
+        }
+
+        private boolean isCurrent(List<UserDTO> users) {
+            if (stale) {
+                return false;
+            }
+            if (changedUsers.isEmpty()) {
+                return true;
+            }
+            for (UserDTO user : users) {
+                if (changedUsers.contains(user.getId())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class CachedBirthDay {
+        private final long day;
+        private int results;
+
+        private CachedBirthDay(long day) {
+            this.day = day;
+        }
+    }
+
+    /**
+     * Treap of ranges ordered by start, each node keeping the largest end in its subtree, so that the ranges
+     * containing a day are found without visiting the subtrees that end before it.
+     */
+    private static final class IntervalTree {
+        private final Random priorities = new Random();
+        private Node root;
+
+        void insert(Range range) {
+            Node[] parts = split(root, range);
+            root = merge(merge(parts[0], new Node(range, priorities.nextInt())), parts[1]);
+        }
+
+        void remove(Range range) {
+            root = remove(root, range);
+        }
+
+        void stab(long day, List<Range> containing) {
+            stab(root, day, containing);
+        }
+
+        private static void stab(Node node, long day, List<Range> containing) {
+            if (node == null || node.maxTo < day) {
+                return;
+            }
+            stab(node.left, day, containing);
+            if (node.range.from() <= day) {
+                if (node.range.to() >= day) {
+                    containing.add(node.range);
+                }
+                // Ranges on the right start after this one, so only visit them when this one starts in time
+                stab(node.right, day, containing);
+            }
+        }
+
+        private static Node remove(Node node, Range range) {
+            if (node == null) {
+                return null;
+            }
+            int comparison = range.compareTo(node.range);
+            if (comparison == 0) {
+                return merge(node.left, node.right);
+            }
+            if (comparison < 0) {
+                node.left = remove(node.left, range);
+            } else {
+                node.right = remove(node.right, range);
+            }
+            node.update();
+            return node;
+        }
+
+        /**
+         * @return the ranges before {@code range} and the ones from it on
+         */
+        private static Node[] split(Node node, Range range) {
+            if (node == null) {
+                return new Node[]{null, null};
+            }
+            if (node.range.compareTo(range) < 0) {
+                Node[] parts = split(node.right, range);
+                node.right = parts[0];
+                node.update();
+                return new Node[]{node, parts[1]};
+            }
+            Node[] parts = split(node.left, range);
+            node.left = parts[1];
+            node.update();
+            return new Node[]{parts[0], node};
+        }
+
+        private static Node merge(Node left, Node right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                left.update();
+                return left;
+            }
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    private static final class Node {
+        private final Range range;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private long maxTo;
+
+        private Node(Range range, int priority) {
+            this.range = range;
+            this.priority = priority;
+            this.maxTo = range.to();
+        }
+
+        private void update() {
+            maxTo = range.to();
+            if (left != null) {
+                maxTo = Math.max(maxTo, left.maxTo);
+            }
+            if (right != null) {
+                maxTo = Math.max(maxTo, right.maxTo);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.clearsolution.testassigment.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the results of requests sent with an {@code Idempotency-Key} header.
+ * <p>
+ * Entries are keyed on the idempotency key plus a hash of the request line and of the body, serialized
+ * with sorted properties and map keys so that the hash doesn't depend on the field order of the request.
+ * They live for {@code users.idempotency.ttl} and are spread over lock stripes, each keeping at most its
+ * share of {@code users.idempotency.max-entries} completed entries (least recently used first out); running
+ * requests are never evicted. A replay gets the stored result, a duplicate that arrives while the first
+ * request is still running waits for it. Failed executions are not remembered, so they can be retried.
+ */
+@Component
+@Profile("!reactive")
+public class IdempotencyStore {
+    private final ObjectMapper canonicalMapper;
+    private final Stripe[] stripes;
+    private final long ttlNanos;
+
+    @Autowired
+    public IdempotencyStore(ObjectMapper objectMapper,
+                            @Value("${users.idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${users.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${users.idempotency.stripes:64}") int stripeCount) {
+        this.canonicalMapper = objectMapper.copy();
+        this.canonicalMapper.setConfig(canonicalMapper.getSerializationConfig()
+                .with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS));
+        int entriesPerStripe = Math.max(1, maxEntries / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(entriesPerStripe);
+        }
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Runs {@code action} once per idempotency key and request; later calls with the same key and request
+     * return its result.
+     *
+     * @param request the method and path of the request, e.g. {@code "PATCH /users/1"}
+     * @param body    the parsed request body
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String idempotencyKey, String request, Object body, Supplier<T> action) {
+        String key = idempotencyKey + ':' + fingerprint(request, body);
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        long now = System.nanoTime();
+        Entry entry;
+        boolean firstExecution = false;
+        stripe.lock.lock();
+        try {
+            entry = stripe.entries.get(key);
+            if (entry == null || entry.expiresAt - now < 0) {
+                entry = new Entry(now + ttlNanos);
+                stripe.put(key, entry);
+                firstExecution = true;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (!firstExecution) {
+            try {
+                return (T) entry.result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        try {
+            T result = action.get();
+            entry.result.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors too, otherwise the duplicates waiting on the entry would wait forever
+            stripe.remove(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private String fingerprint(String request, Object body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(canonicalMapper.writeValueAsBytes(body));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize the body of " + request, e);
+        }
+    }
+
+    private static final class Entry {
+        private final long expiresAt;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxEntries;
+
+        private Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * Adds the entry and evicts the least recently used completed entries over the bound. Called under
+         * the lock.
+         */
+        private void put(String key, Entry entry) {
+            entries.put(key, entry);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                if (eldest.next().result.isDone()) {
+                    eldest.remove();
+                }
+            }
+        }
+
+        private void remove(String key, Entry entry) {
+            lock.lock();
+            try {
+                entries.remove(key, entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
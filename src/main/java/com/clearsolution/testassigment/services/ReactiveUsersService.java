@@ -0,0 +1,129 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.exceptions.UserNotFoundException;
+import com.clearsolution.testassigment.exceptions.ValidationException;
+import com.clearsolution.testassigment.exceptions.WrongRequestException;
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import com.clearsolution.testassigment.repositories.ReactiveUsersRepository;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.MonthDay;
+import java.time.Year;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of {@link UsersService}, active with the {@code reactive} profile.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUsersService {
+    private final ReactiveUsersRepository usersRepository;
+    private final ModelMapper userMapper;
+
+    @Value("${MIN_USER_AGE}")
+    private int minUserAge;
+
+    @Autowired
+    public ReactiveUsersService(ReactiveUsersRepository usersRepository, ModelMapper userMapper) {
+        this.usersRepository = usersRepository;
+        this.userMapper = userMapper;
+    }
+
+    public Mono<UserDTO> getUserById(Long id) {
+        return usersRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException("User is not found by ID " + id)))
+                .map(this::convertToDto);
+    }
+
+    public Mono<UserDTO> createUser(UserDTO dto) {
+        return usersRepository.existsById(dto.getId())
+                .flatMap(idIsTaken -> {
+                    if (idIsTaken) {
+                        return Mono.<Boolean>error(new WrongRequestException("User with ID " + dto.getId()
+                                + " is already saved. To save new user use ID value '0'"));
+                    }
+                    return usersRepository.findUserEntityByEmail(UserEntity.normalizeEmail(dto.getEmail())).hasElement();
+                })
+                .flatMap(emailIsTaken -> {
+                    if (emailIsTaken) {
+                        return Mono.<UserEntity>error(new ValidationException("User with email " + dto.getEmail() + " is already created"));
+                    }
+                    if (UsersServiceSupport.getUserAge(dto.getBirthDate()) < minUserAge) {
+                        return Mono.<UserEntity>error(new ValidationException("Registration of users under 18 is forbidden"));
+                    }
+                    UserEntity newUser = convertToEntity(dto);
+                    // R2DBC treats a non-null ID as an update, so let the database assign it
+                    newUser.setId(null);
+                    newUser.setUpdatedAt(Instant.now());
+                    newUser.normalize();
+                    return usersRepository.save(newUser);
+                })
+                .map(this::convertToDto);
+    }
+
+    @Transactional
+    public Mono<UserDTO> updateUser(UserDTO dto) {
+        return usersRepository.existsById(dto.getId())
+                .flatMap(exists -> {
+                    if (!exists) {
+                        return Mono.<UserEntity>error(new UserNotFoundException("User is not found by ID " + dto.getId()));
+                    }
+                    UserEntity user = convertToEntity(dto);
+                    user.setUpdatedAt(Instant.now());
+                    user.normalize();
+                    return usersRepository.save(user);
+                })
+                .map(this::convertToDto);
+    }
+
+    @Transactional
+    public Mono<UserDTO> updateUserFields(Long id, Map<String, Object> fields) {
+        return usersRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException("User is not found by ID " + id)))
+                .flatMap(userToBeUpdated -> {
+                    UsersServiceSupport.applyFields(userToBeUpdated, fields);
+                    userToBeUpdated.setUpdatedAt(Instant.now());
+                    userToBeUpdated.normalize();
+                    return usersRepository.save(userToBeUpdated);
+                })
+                .map(this::convertToDto);
+    }
+
+    public Flux<UserDTO> getUsersByBirthDateRange(Date from, Date to) {
+        return usersRepository.findUserEntityByBirthDateBetween(from, to)
+                .map(this::convertToDto);
+    }
+
+    public Flux<UserDTO> getUsersByBirthdayRange(MonthDay from, MonthDay to, Year year) {
+        return Flux.defer(() -> {
+            UsersServiceSupport.BirthdayWindow window = UsersServiceSupport.birthdayWindow(from, to, year);
+            return window.wrapsYearEnd()
+                    ? usersRepository.findBirthdaysAcrossYearEnd(window.from(), window.to())
+                    : usersRepository.findBirthdaysBetween(window.from(), window.to());
+        }).map(this::convertToDto);
+    }
+
+    public Mono<Void> deleteUser(Long id) {
+        return usersRepository.existsById(id)
+                .flatMap(exists -> {
+                    if (!exists) {
+                        return Mono.<Void>error(new UserNotFoundException("User is not found by ID " + id));
+                    }
+                    return usersRepository.deleteById(id);
+                });
+    }
+
+    private UserEntity convertToEntity(UserDTO dto) { return userMapper.map(dto, UserEntity.class); }
+
+    private UserDTO convertToDto(UserEntity entity) { return userMapper.map(entity, UserDTO.class); }
+}
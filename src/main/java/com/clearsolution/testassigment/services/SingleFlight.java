@@ -0,0 +1,49 @@
+package com.clearsolution.testassigment.services;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader, callers arriving while it
+ * is running wait for and share its result or exception. Nothing is kept once the load completes.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCalls;
+
+    public SingleFlight(Counter coalescedCalls) {
+        this.coalescedCalls = coalescedCalls;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> runningLoad = inFlight.putIfAbsent(key, load);
+        if (runningLoad != null) {
+            coalescedCalls.increment();
+            try {
+                return runningLoad.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            V result = loader.get();
+            load.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // an Error has to complete the load too, otherwise the coalesced callers park on join() forever
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.exceptions.ValidationException;
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * User fields asked for with the {@code fields} request parameter, kept in {@link UserDTO} order so that
+ * the same selection always gives the same key.
+ */
+public final class UserFieldSet {
+    private static final List<String> USER_FIELDS =
+            List.of("id", "email", "firstName", "lastName", "birthDate", "address", "phoneNumber");
+    public static final UserFieldSet ALL = new UserFieldSet(USER_FIELDS);
+
+    private final List<String> fields;
+
+    private UserFieldSet(List<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param fields comma separated field names, {@code null} or blank for all fields
+     */
+    public static UserFieldSet parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        for (String field : requested) {
+            if (!USER_FIELDS.contains(field)) {
+                throw new ValidationException("Unknown user field '" + field + "', expected some of " + USER_FIELDS);
+            }
+        }
+        List<String> selected = USER_FIELDS.stream().filter(requested::contains).collect(Collectors.toList());
+        return selected.isEmpty() || selected.size() == USER_FIELDS.size() ? ALL : new UserFieldSet(List.copyOf(selected));
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    public String key() {
+        return String.join(",", fields);
+    }
+
+    /**
+     * @return the JSON of the user with the selected fields only
+     */
+    public ObjectNode select(ObjectMapper objectMapper, UserDTO user) {
+        ObjectNode json = objectMapper.valueToTree(user);
+        return isAll() ? json : json.retain(fields);
+    }
+}
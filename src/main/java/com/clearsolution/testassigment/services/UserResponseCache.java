@@ -0,0 +1,150 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the encoded {@code GET /users/{id}} response bodies, so that repeated reads skip the mapping and the
+ * JSON serialization and are copied straight to the response.
+ * <p>
+ * Entries are keyed on the user ID, the {@link Representation} and the selected {@link UserFieldSet}, and
+ * the cache is bounded by {@code users.response-cache.max-bytes} of encoded bodies.
+ * {@link #invalidate(Long)} drops every representation and field set of a user; it also bumps a generation counter so that a read which loaded the user before
+ * the write can't put the stale body back afterwards.
+ */
+@Component
+@Profile("!reactive")
+public class UserResponseCache {
+    // Rough per-entry cost of the key, the entry and the array header, counted against the byte bound
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Key, byte[]> bodies;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    // Keys of the field sets cached so far, at most one per combination of user fields
+    private final Set<String> fieldSets = ConcurrentHashMap.newKeySet();
+
+    public enum Representation {
+        JSON, GZIP_JSON
+    }
+
+    @Autowired
+    public UserResponseCache(ObjectMapper objectMapper,
+                             @Value("${users.response-cache.max-bytes:64MB}") DataSize maxBytes,
+                             @Value("${users.response-cache.ttl:10m}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maxBytes.toBytes())
+                .<Key, byte[]>weigher((key, body) -> body.length + ENTRY_OVERHEAD_BYTES)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * @return the cached body of the user in the given representation, encoding the user from
+     * {@code loader} when it isn't cached
+     */
+    public byte[] get(Long id, Representation representation, Supplier<UserDTO> loader) {
+        return get(id, representation, UserFieldSet.ALL, loader);
+    }
+
+    /**
+     * @return the cached body with the selected fields of the user, encoding the user from {@code loader}
+     * when it isn't cached
+     */
+    public byte[] get(Long id, Representation representation, UserFieldSet fields, Supplier<UserDTO> loader) {
+        Key key = new Key(id, representation, fields.key());
+        byte[] body = bodies.getIfPresent(key);
+        if (body != null) {
+            return body;
+        }
+        int stripe = stripe(id);
+        long generation = generations.get(stripe);
+        body = encode(loader.get(), representation, fields);
+        if (generations.get(stripe) == generation) {
+            fieldSets.add(fields.key());
+            bodies.put(key, body);
+            if (generations.get(stripe) != generation) {
+                bodies.invalidate(key);
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Drops the cached bodies of the user, and once more after the current transaction commits so that
+     * nothing read in between survives.
+     */
+    public void invalidate(Long id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        bodies.invalidateAll();
+    }
+
+    private void evict(Long id) {
+        generations.incrementAndGet(stripe(id));
+        for (String fields : fieldSets) {
+            for (Representation representation : Representation.values()) {
+                bodies.invalidate(new Key(id, representation, fields));
+            }
+        }
+    }
+
+    private byte[] encode(UserDTO user, Representation representation, UserFieldSet fields) {
+        try {
+            byte[] json = fields.isAll()
+                    ? objectMapper.writeValueAsBytes(user)
+                    : objectMapper.writeValueAsBytes(fields.select(objectMapper, user));
+            if (representation == Representation.JSON) {
+                return json;
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            return compressed.toByteArray();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize user " + user.getId(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int stripe(Long id) {
+        return Math.floorMod(Long.hashCode(id), GENERATION_STRIPES);
+    }
+
+    private record Key(Long id, Representation representation, String fields) {
+    }
+}
@@ -1,103 +1,372 @@
 package com.clearsolution.testassigment.services;
 
+import com.clearsolution.testassigment.configs.CacheConfig;
 import com.clearsolution.testassigment.exceptions.UserNotFoundException;
 import com.clearsolution.testassigment.exceptions.ValidationException;
 import com.clearsolution.testassigment.exceptions.WrongRequestException;
 import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.models.DTOs.UserLookupDTO;
 import com.clearsolution.testassigment.models.entities.UserEntity;
-import com.clearsolution.testassigment.repositories.UsersRepository;
+import com.clearsolution.testassigment.monitoring.UsersServiceEvent;
+import com.clearsolution.testassigment.repositories.UsersStore;
+import com.clearsolution.testassigment.services.snapshot.UserSnapshotStore;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.lang.reflect.Field;
-import java.time.LocalDate;
-import java.time.Period;
-import java.time.ZoneId;
+import java.time.MonthDay;
+import java.time.Year;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Collectors;
 
 
 @Service
+@Profile("!reactive")
 public class UsersService {
-    private final UsersRepository usersRepository;
+    public static final String COALESCED_REQUESTS_METRIC = "users.requests.coalesced";
+    private static final int CACHE_GENERATION_STRIPES = 1024;
+    private final UsersStore usersStore;
     private final ModelMapper userMapper;
+    private final CacheManager cacheManager;
+    private final UserSnapshotStore snapshotStore;
+    private final UserResponseCache responseCache;
+    private final BirthDateRangeCache rangeCache;
+    private final SingleFlight<Long, UserDTO> userByIdLoads;
+    private final SingleFlight<String, Optional<UserEntity>> userByEmailLoads;
+    // Bumped by every eviction of a user, so that a load that read the user before a write doesn't cache it after
+    private final AtomicLongArray cachedUserGenerations = new AtomicLongArray(CACHE_GENERATION_STRIPES);
 
     @Value("${MIN_USER_AGE}")
     private int minUserAge;
 
+    @Value("${users.multi-get.max-ids:500}")
+    private int multiGetMaxIds;
+
+    @Value("${users.multi-get.chunk-size:100}")
+    private int multiGetChunkSize;
+
     @Autowired
-    public UsersService(UsersRepository usersRepository, ModelMapper userMapper) {
-        this.usersRepository = usersRepository;
+    public UsersService(UsersStore usersStore, ModelMapper userMapper, CacheManager cacheManager,
+                        UserSnapshotStore snapshotStore, UserResponseCache responseCache,
+                        BirthDateRangeCache rangeCache, MeterRegistry meterRegistry) {
+        this.usersStore = usersStore;
         this.userMapper = userMapper;
+        this.cacheManager = cacheManager;
+        this.snapshotStore = snapshotStore;
+        this.responseCache = responseCache;
+        this.rangeCache = rangeCache;
+        this.userByIdLoads = new SingleFlight<>(meterRegistry.counter(COALESCED_REQUESTS_METRIC, "operation", "getUserById"));
+        this.userByEmailLoads = new SingleFlight<>(meterRegistry.counter(COALESCED_REQUESTS_METRIC, "operation", "findUserEntityByEmail"));
     }
 
+    /**
+     * Serves the user from the {@code users} cache, the snapshot or the database, in that order. Callers always
+     * get their own copy, the cached instance is never handed out.
+     */
     public UserDTO getUserById(Long id) {
-        UserEntity foundedUser = usersRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException("User is not found by ID " + id));
-        return convertToDto(foundedUser);
+        UsersServiceEvent event = UsersServiceEvent.start("getUserById").userId(id);
+        try {
+            Cache cache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+            UserDTO cachedUser = cache == null ? null : cache.get(id, UserDTO.class);
+            if (cachedUser != null) {
+                event.rows(1);
+                return cachedUser.copy();
+            }
+            Optional<UserDTO> snapshotUser = snapshotStore.findById(id);
+            if (snapshotUser.isPresent()) {
+                event.rows(1);
+                return snapshotUser.get();
+            }
+            UserDTO user = userByIdLoads.execute(id, () -> {
+                long generation = cachedUserGenerations.get(generationStripe(id));
+                UserEntity foundedUser = event.query(() -> usersStore.findById(id))
+                        .orElseThrow(() -> new UserNotFoundException("User is not found by ID " + id));
+                UserDTO loadedUser = event.map(() -> convertToDto(foundedUser));
+                cacheUser(cache, id, loadedUser, generation);
+                return loadedUser;
+            });
+            event.rows(1);
+            return user.copy();
+        } finally {
+            event.commit();
+        }
     }
 
-    public UserDTO createUser(UserDTO dto) {
-        if(usersRepository.findById(dto.getId()).isPresent()) {
-            throw new WrongRequestException("User with ID " + dto.getId()
-                    + " is already saved. To save new user use ID value '0'");
+    /**
+     * Reads only the selected fields of the user; the other fields of the result are {@code null}.
+     */
+    public UserDTO getUserFieldsById(Long id, UserFieldSet fields) {
+        UsersServiceEvent event = UsersServiceEvent.start("getUserFieldsById").userId(id);
+        try {
+            Optional<UserDTO> snapshotUser = snapshotStore.findById(id);
+            if (snapshotUser.isPresent()) {
+                event.rows(1);
+                return snapshotUser.get();
+            }
+            UserEntity foundedUser = event.query(() -> usersStore.findFieldsById(id, fields.getFields()))
+                    .orElseThrow(() -> new UserNotFoundException("User is not found by ID " + id));
+            UserDTO user = event.map(() -> convertToDto(foundedUser));
+            event.rows(1);
+            return user;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Resolves many users at once: cached users are served from the cache, the rest are loaded with
+     * chunked {@code IN} queries. The result follows the order of {@code ids}, with {@code found = false}
+     * for the IDs that don't exist.
+     */
+    public List<UserLookupDTO> getUsersByIds(List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > multiGetMaxIds) {
+            throw new ValidationException("Number of requested IDs should be between 1 and " + multiGetMaxIds);
         }
-        if(usersRepository.findUserEntityByEmail(dto.getEmail()).isPresent()) {
-            throw new ValidationException("User with email " + dto.getEmail() + " is already created");
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("Requested IDs should not be empty");
         }
-        if(getUserAge(dto.getBirthDate()) < minUserAge) {
-            throw new ValidationException("Registration of users under 18 is forbidden");
+        UsersServiceEvent event = UsersServiceEvent.start("getUsersByIds");
+        try {
+            Cache cache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+            Map<Long, UserDTO> foundUsers = new HashMap<>();
+            List<Long> missingIds = new ArrayList<>();
+            for (Long id : new LinkedHashSet<>(ids)) {
+                UserDTO cachedUser = cache == null ? null : cache.get(id, UserDTO.class);
+                if (cachedUser != null) {
+                    foundUsers.put(id, cachedUser.copy());
+                } else {
+                    missingIds.add(id);
+                }
+            }
+            for (int from = 0; from < missingIds.size(); from += multiGetChunkSize) {
+                List<Long> chunk = missingIds.subList(from, Math.min(from + multiGetChunkSize, missingIds.size()));
+                Map<Long, Long> generations = new HashMap<>();
+                for (Long id : chunk) {
+                    generations.put(id, cachedUserGenerations.get(generationStripe(id)));
+                }
+                for (UserEntity entity : event.query(() -> usersStore.findAllById(chunk))) {
+                    UserDTO user = event.map(() -> convertToDto(entity));
+                    foundUsers.put(user.getId(), user);
+                    cacheUser(cache, user.getId(), user.copy(), generations.get(user.getId()));
+                }
+            }
+            event.rows(foundUsers.size());
+            return ids.stream()
+                    .map(id -> new UserLookupDTO(id, foundUsers.containsKey(id), foundUsers.get(id)))
+                    .collect(Collectors.toList());
+        } finally {
+            event.commit();
+        }
+    }
+
+    public UserDTO createUser(UserDTO dto) {
+        UsersServiceEvent event = UsersServiceEvent.start("createUser");
+        try {
+            if(event.query(() -> usersStore.findById(dto.getId())).isPresent()) {
+                throw new WrongRequestException("User with ID " + dto.getId()
+                        + " is already saved. To save new user use ID value '0'");
+            }
+            String email = UserEntity.normalizeEmail(dto.getEmail());
+            if(userByEmailLoads.execute(email, () -> event.query(() -> usersStore.findUserEntityByEmail(email))).isPresent()) {
+                throw new ValidationException("User with email " + dto.getEmail() + " is already created");
+            }
+            if(UsersServiceSupport.getUserAge(dto.getBirthDate()) < minUserAge) {
+                throw new ValidationException("Registration of users under 18 is forbidden");
+            }
+            UserEntity newUser = event.map(() -> convertToEntity(dto));
+            UserEntity savedUser = event.query(() -> usersStore.save(newUser));
+            UserDTO createdUser = event.map(() -> convertToDto(savedUser));
+            responseCache.invalidate(createdUser.getId());
+            rangeCache.onUserChanged(createdUser.getId(), createdUser.getBirthDate());
+            snapshotStore.onSaved(createdUser);
+            event.userId(createdUser.getId()).rows(1);
+            return createdUser;
+        } finally {
+            event.commit();
         }
-        return convertToDto(usersRepository.save(convertToEntity(dto)));
     }
 
     @Transactional
     public UserDTO updateUser(UserDTO dto) {
-        if(!usersRepository.existsById(dto.getId())) throw new UserNotFoundException("User is not found by ID " + dto.getId());
-        return convertToDto(usersRepository.save(convertToEntity(dto)));
+        UsersServiceEvent event = UsersServiceEvent.start("updateUser").userId(dto.getId());
+        try {
+            if(!event.query(() -> usersStore.existsById(dto.getId()))) throw new UserNotFoundException("User is not found by ID " + dto.getId());
+            UserEntity user = event.map(() -> convertToEntity(dto));
+            UserEntity savedUser = event.query(() -> usersStore.save(user));
+            UserDTO updatedUser = event.map(() -> convertToDto(savedUser));
+            evictCachedUser(dto.getId());
+            responseCache.invalidate(dto.getId());
+            rangeCache.onUserChanged(dto.getId(), updatedUser.getBirthDate());
+            snapshotStore.onSaved(updatedUser);
+            event.rows(1);
+            return updatedUser;
+        } finally {
+            event.commit();
+        }
     }
 
     @Transactional
     public UserDTO updateUserFields(Long id, Map<String, Object> fields) {
-        UserEntity userToBeUpdated = usersRepository.findById(id).orElseThrow(() -> new UserNotFoundException("User is not found by ID " + id));
-        for (Map.Entry<String, Object> entry : fields.entrySet()) {
-            String fieldName = entry.getKey();
-            Object fieldValue = entry.getValue();
-            try {
-                Field field = userToBeUpdated.getClass().getDeclaredField(fieldName);
-                field.setAccessible(true);
-                field.set(userToBeUpdated, fieldValue);
-            } catch (NoSuchFieldException e) {
-                throw new WrongRequestException("User haven't the field " + fieldName);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Error accessing field");
-            }
+        UsersServiceEvent event = UsersServiceEvent.start("updateUserFields").userId(id);
+        try {
+            UserEntity userToBeUpdated = event.query(() -> usersStore.findById(id)).orElseThrow(() -> new UserNotFoundException("User is not found by ID " + id));
+            UsersServiceSupport.applyFields(userToBeUpdated, fields);
+            event.query(() -> usersStore.save(userToBeUpdated));
+            UserDTO updatedUser = event.map(() -> convertToDto(userToBeUpdated));
+            evictCachedUser(id);
+            responseCache.invalidate(id);
+            rangeCache.onUserChanged(id, updatedUser.getBirthDate());
+            snapshotStore.onSaved(updatedUser);
+            event.rows(1);
+            return updatedUser;
+        } finally {
+            event.commit();
         }
-        return convertToDto(userToBeUpdated);
     }
 
     public List<UserDTO> getUsersByBirthDateRange(Date from, Date to) {
-        return usersRepository.findUserEntityByBirthDateBetween(from, to).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        UsersServiceEvent event = UsersServiceEvent.start("getUsersByBirthDateRange")
+                .rangeDays(TimeUnit.MILLISECONDS.toDays(to.getTime() - from.getTime()) + 1);
+        try {
+            List<UserDTO> users = rangeCache.get(from, to, () -> {
+                Optional<List<UserDTO>> snapshotUsers = snapshotStore.findByBirthDateRange(from, to);
+                if (snapshotUsers.isPresent()) {
+                    return snapshotUsers.get();
+                }
+                List<UserEntity> entities = event.query(() -> usersStore.findUserEntityByBirthDateBetween(from, to));
+                return event.map(() -> entities.stream()
+                        .map(this::convertToDto)
+                        .collect(Collectors.toList()));
+            });
+            event.rows(users.size());
+            return users;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Like {@link #getUsersByBirthDateRange(Date, Date)}, reading only the selected fields of the users.
+     */
+    public List<UserDTO> getUsersByBirthDateRange(Date from, Date to, UserFieldSet fields) {
+        UsersServiceEvent event = UsersServiceEvent.start("getUsersByBirthDateRange")
+                .rangeDays(TimeUnit.MILLISECONDS.toDays(to.getTime() - from.getTime()) + 1);
+        try {
+            Optional<List<UserDTO>> snapshotUsers = snapshotStore.findByBirthDateRange(from, to);
+            List<UserDTO> users;
+            if (snapshotUsers.isPresent()) {
+                users = snapshotUsers.get();
+            } else {
+                List<UserEntity> entities = event.query(() -> usersStore.findFieldsByBirthDateBetween(from, to, fields.getFields()));
+                users = event.map(() -> entities.stream()
+                        .map(this::convertToDto)
+                        .collect(Collectors.toList()));
+            }
+            event.rows(users.size());
+            return users;
+        } finally {
+            event.commit();
+        }
     }
 
+    /**
+     * Finds the users whose birthday falls from {@code from} to {@code to} of {@code year}, ordered by
+     * birthday within the window.
+     */
+    public List<UserDTO> getUsersByBirthdayRange(MonthDay from, MonthDay to, Year year) {
+        UsersServiceSupport.BirthdayWindow window = UsersServiceSupport.birthdayWindow(from, to, year);
+        UsersServiceEvent event = UsersServiceEvent.start("getUsersByBirthdayRange");
+        try {
+            List<UserEntity> entities = event.query(() -> window.wrapsYearEnd()
+                    ? usersStore.findBirthdaysAcrossYearEnd(window.from(), window.to())
+                    : usersStore.findBirthdaysBetween(window.from(), window.to()));
+            List<UserDTO> users = event.map(() -> entities.stream()
+                    .map(this::convertToDto)
+                    .collect(Collectors.toList()));
+            event.rows(users.size());
+            return users;
+        } finally {
+            event.commit();
+        }
+    }
 
     public void deleteUser(Long id) {
-        if(!usersRepository.existsById(id)) throw new UserNotFoundException("User is not found by ID " + id);
-        usersRepository.deleteById(id);
+        UsersServiceEvent event = UsersServiceEvent.start("deleteUser").userId(id);
+        try {
+            if(!event.query(() -> usersStore.existsById(id))) throw new UserNotFoundException("User is not found by ID " + id);
+            event.query(() -> usersStore.deleteById(id));
+            evictCachedUser(id);
+            responseCache.invalidate(id);
+            rangeCache.onUserChanged(id, null);
+            snapshotStore.onDeleted(id);
+            event.rows(1);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Caches the loaded user unless it was evicted since {@code generation} was read, the load may then have
+     * read the row as it was before the write.
+     */
+    private void cacheUser(Cache cache, Long id, UserDTO user, long generation) {
+        if (cache == null) {
+            return;
+        }
+        int stripe = generationStripe(id);
+        if (cachedUserGenerations.get(stripe) == generation) {
+            cache.put(id, user);
+            if (cachedUserGenerations.get(stripe) != generation) {
+                cache.evict(id);
+            }
+        }
+    }
+
+    /**
+     * Drops the user from the {@code users} cache, and once more after the current transaction commits so that
+     * a read of the old row in between doesn't stay cached. Both evictions bump the generation of the user,
+     * which keeps loads that are still running from caching what they read.
+     */
+    private void evictCachedUser(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        if (cache == null) {
+            return;
+        }
+        evict(cache, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(cache, id);
+                }
+            });
+        }
+    }
+
+    private void evict(Cache cache, Long id) {
+        cachedUserGenerations.incrementAndGet(generationStripe(id));
+        cache.evict(id);
     }
 
-    private int getUserAge(Date birthDate) {
-        LocalDate birthLocalDate = LocalDate.ofInstant(birthDate.toInstant(), ZoneId.systemDefault());
-        LocalDate registrationDate = LocalDate.now();
-        Period period = Period.between(birthLocalDate, registrationDate);
-        return period.getYears();
+    private static int generationStripe(Long id) {
+        return Math.floorMod(Long.hashCode(id), CACHE_GENERATION_STRIPES);
     }
 
     private UserEntity convertToEntity(UserDTO dto) { return userMapper.map(dto, UserEntity.class); }
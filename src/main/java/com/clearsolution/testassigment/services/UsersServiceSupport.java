@@ -0,0 +1,77 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.exceptions.ValidationException;
+import com.clearsolution.testassigment.exceptions.WrongRequestException;
+import com.clearsolution.testassigment.models.entities.UserEntity;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.Period;
+import java.time.Year;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Rules shared by the blocking and the reactive users services.
+ */
+final class UsersServiceSupport {
+
+    private UsersServiceSupport() {
+    }
+
+    static void applyFields(UserEntity userToBeUpdated, Map<String, Object> fields) {
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            String fieldName = entry.getKey();
+            Object fieldValue = entry.getValue();
+            try {
+                Field field = userToBeUpdated.getClass().getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(userToBeUpdated, fieldValue);
+            } catch (NoSuchFieldException e) {
+                throw new WrongRequestException("User haven't the field " + fieldName);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Error accessing field");
+            }
+        }
+    }
+
+    static int getUserAge(Date birthDate) {
+        LocalDate birthLocalDate = LocalDate.ofInstant(birthDate.toInstant(), ZoneId.systemDefault());
+        LocalDate registrationDate = LocalDate.now();
+        Period period = Period.between(birthLocalDate, registrationDate);
+        return period.getYears();
+    }
+
+    /**
+     * Resolves the birthdays from {@code from} to {@code to} in {@code year}; the window wraps over the
+     * year end when {@code from} comes after {@code to}. In non-leap years Feb 29 birthdays are celebrated
+     * on Feb 28.
+     */
+    static BirthdayWindow birthdayWindow(MonthDay from, MonthDay to, Year year) {
+        MonthDay leapDay = MonthDay.of(Month.FEBRUARY, 29);
+        if (!year.isLeap() && (from.equals(leapDay) || to.equals(leapDay))) {
+            throw new ValidationException("There is no February 29 in " + year);
+        }
+        short toKey = birthdayKey(to);
+        if (!year.isLeap() && to.equals(MonthDay.of(Month.FEBRUARY, 28))) {
+            toKey = birthdayKey(leapDay);
+        }
+        return new BirthdayWindow(birthdayKey(from), toKey);
+    }
+
+    private static short birthdayKey(MonthDay day) {
+        return (short) (day.getMonthValue() * 100 + day.getDayOfMonth());
+    }
+
+    /**
+     * Inclusive range of {@code birthday_mmdd} keys.
+     */
+    record BirthdayWindow(short from, short to) {
+        boolean wrapsYearEnd() {
+            return from > to;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.clearsolution.testassigment.services.snapshot;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.function.Consumer;
+
+import static com.clearsolution.testassigment.services.snapshot.UserSnapshotFormat.*;
+
+/**
+ * Read-only view of a snapshot file mapped into memory. Lookups read the mapping in place with
+ * absolute gets, so one instance can be shared by any number of threads.
+ * <p>
+ * A single mapping is limited to 2 GB, so the file is mapped in 1 GB segments addressed with long
+ * positions. Every segment but the last overlaps the next one by 8 bytes, so an int or a long never
+ * straddles two segments; only strings are read piecewise.
+ */
+class UserSnapshot {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final int SEGMENT_OVERLAP = Long.BYTES;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final int count;
+    private final Instant createdAt;
+    private final long recordsOffset;
+    private final long birthIndexOffset;
+    private final long stringsOffset;
+
+    private UserSnapshot(MappedByteBuffer[] segments, int segmentShift) throws IOException {
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        if (getInt(MAGIC_OFFSET) != MAGIC || getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException("Not a users snapshot of version " + VERSION);
+        }
+        long users = getLong(COUNT_OFFSET);
+        if (users > Integer.MAX_VALUE) {
+            throw new IOException("Users snapshot holds " + users + " users, more than " + Integer.MAX_VALUE);
+        }
+        this.count = (int) users;
+        this.createdAt = Instant.ofEpochMilli(getLong(CREATED_AT_OFFSET));
+        this.recordsOffset = getLong(RECORDS_OFFSET);
+        this.birthIndexOffset = getLong(BIRTH_INDEX_OFFSET);
+        this.stringsOffset = getLong(STRINGS_OFFSET);
+    }
+
+    static UserSnapshot open(Path file) throws IOException {
+        return open(file, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Maps the file in segments of {@code 2^segmentShift} bytes; tests use small segments.
+     */
+    static UserSnapshot open(Path file, int segmentShift) throws IOException {
+        long segmentSize = 1L << segmentShift;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) Math.max(1, (size + segmentSize - 1) >>> segmentShift)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * segmentSize;
+                // The mappings stay valid after the channel is closed
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(segmentSize + SEGMENT_OVERLAP, size - position));
+            }
+            return new UserSnapshot(segments, segmentShift);
+        }
+    }
+
+    Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long idAt(int record) {
+        return getLong(recordsOffset + (long) record * RECORD_SIZE + ID);
+    }
+
+    /**
+     * @return the user, or {@code null} when the snapshot doesn't contain it
+     */
+    UserDTO findById(long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = idAt(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return read(middle);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Passes the users born between the two epoch days, inclusive, ordered by birth date and ID.
+     */
+    void forEachInBirthRange(long fromDay, long toDay, Consumer<UserDTO> consumer) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (birthDayAt(indexedRecord(middle)) < fromDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int position = low; position < count; position++) {
+            int record = indexedRecord(position);
+            if (birthDayAt(record) > toDay) {
+                break;
+            }
+            consumer.accept(read(record));
+        }
+    }
+
+    private int indexedRecord(int position) {
+        return getInt(birthIndexOffset + (long) position * Integer.BYTES);
+    }
+
+    private int birthDayAt(int record) {
+        return getInt(recordsOffset + (long) record * RECORD_SIZE + BIRTH_DAY);
+    }
+
+    private UserDTO read(int record) {
+        long base = recordsOffset + (long) record * RECORD_SIZE;
+        int birthDay = getInt(base + BIRTH_DAY);
+        return new UserDTO.Builder()
+                .id(getLong(base + ID))
+                .email(readString(base + EMAIL))
+                .firstName(readString(base + FIRST_NAME))
+                .lastName(readString(base + LAST_NAME))
+                .birthDate(birthDay == NO_BIRTH_DATE ? null
+                        : Date.from(LocalDate.ofEpochDay(birthDay).atStartOfDay(ZoneId.systemDefault()).toInstant()))
+                .address(readString(base + ADDRESS))
+                .phoneNumber(readString(base + PHONE_NUMBER))
+                .build();
+    }
+
+    private String readString(long reference) {
+        long offset = getLong(reference);
+        int length = getInt(reference + Long.BYTES);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        long position = stringsOffset + offset;
+        int copied = 0;
+        while (copied < length) {
+            int segmentPosition = (int) (position & segmentMask);
+            int chunk = (int) Math.min(length - copied, segmentMask + 1 - segmentPosition);
+            segments[(int) (position >>> segmentShift)].get(segmentPosition, bytes, copied, chunk);
+            copied += chunk;
+            position += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getInt(long position) {
+        return segments[(int) (position >>> segmentShift)].getInt((int) (position & segmentMask));
+    }
+
+    private long getLong(long position) {
+        return segments[(int) (position >>> segmentShift)].getLong((int) (position & segmentMask));
+    }
+}
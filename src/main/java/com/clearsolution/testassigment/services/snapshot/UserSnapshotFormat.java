@@ -0,0 +1,44 @@
+package com.clearsolution.testassigment.services.snapshot;
+
+/**
+ * Layout of a users snapshot file:
+ * <pre>
+ * header        64 bytes, see the *_OFFSET constants
+ * records       RECORD_SIZE bytes per user, sorted by ID, so the records are the ID index
+ * birth index   one int record number per user, sorted by birth date and ID
+ * string pool   UTF-8 bytes of emails, names, addresses and phone numbers
+ * </pre>
+ * A record holds the ID, the birth date as an epoch day and a (long offset, int length) reference into the
+ * string pool for every text field; a length of -1 stands for {@code null}. All offsets are longs, so a
+ * snapshot isn't limited to 2 GB.
+ */
+final class UserSnapshotFormat {
+    static final int MAGIC = 0x55534E50;
+    static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 64;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int COUNT_OFFSET = 8;
+    static final int CREATED_AT_OFFSET = 16;
+    static final int RECORDS_OFFSET = 24;
+    static final int BIRTH_INDEX_OFFSET = 32;
+    static final int STRINGS_OFFSET = 40;
+    static final int STRINGS_LENGTH_OFFSET = 48;
+
+    static final int STRING_REFERENCE_SIZE = 12;
+    static final int RECORD_SIZE = 72;
+    static final int ID = 0;
+    static final int BIRTH_DAY = 8;
+    static final int EMAIL = 12;
+    static final int FIRST_NAME = 24;
+    static final int LAST_NAME = 36;
+    static final int ADDRESS = 48;
+    static final int PHONE_NUMBER = 60;
+
+    static final int NO_BIRTH_DATE = Integer.MIN_VALUE;
+    static final int NULL_STRING = -1;
+
+    private UserSnapshotFormat() {
+    }
+}
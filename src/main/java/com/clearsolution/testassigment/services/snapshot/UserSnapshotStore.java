@@ -0,0 +1,268 @@
+package com.clearsolution.testassigment.services.snapshot;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import com.clearsolution.testassigment.repositories.UsersStore;
+import jakarta.annotation.PostConstruct;
+import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves users from a memory-mapped snapshot so that a restarted instance doesn't send its whole read load
+ * to the database while the caches warm up.
+ * <p>
+ * With {@code users.snapshot.enabled}, the snapshot at {@code users.snapshot.path} is mapped on startup and
+ * rewritten every {@code users.snapshot.interval}. Changes made after the snapshot was taken are kept in an
+ * overlay: writes of this instance are recorded directly, and every {@code users.snapshot.catch-up-interval}
+ * the users updated since the last catch-up are loaded from the database. Users deleted by other instances
+ * are detected once after startup, by comparing the snapshot IDs with the database, and otherwise with the
+ * next snapshot.
+ */
+@Component
+@Profile("!reactive")
+public class UserSnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(UserSnapshotStore.class);
+    // Tolerated clock difference between instances writing updated_at
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private final UsersStore usersStore;
+    private final ModelMapper userMapper;
+    private final Map<Long, OverlayEntry> overlay = new ConcurrentHashMap<>();
+    private volatile UserSnapshot snapshot;
+    private volatile Instant caughtUpTo;
+    private volatile boolean deletionsReconciled;
+
+    @Value("${users.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Value("${users.snapshot.path:data/users.snapshot}")
+    private Path path;
+
+    @Value("${users.snapshot.page-size:10000}")
+    private int pageSize;
+
+    @Autowired
+    public UserSnapshotStore(UsersStore usersStore, ModelMapper userMapper) {
+        this.usersStore = usersStore;
+        this.userMapper = userMapper;
+    }
+
+    @PostConstruct
+    void open() {
+        if (!enabled || !Files.exists(path)) {
+            return;
+        }
+        try {
+            UserSnapshot opened = UserSnapshot.open(path);
+            caughtUpTo = opened.getCreatedAt();
+            snapshot = opened;
+            log.info("Serving {} users from snapshot {} taken at {}", opened.size(), path, opened.getCreatedAt());
+        } catch (IOException e) {
+            log.warn("Unable to open users snapshot {}, reading from the database", path, e);
+        }
+    }
+
+    /**
+     * @return the user when the snapshot or the overlay knows it, otherwise empty and the database decides
+     */
+    public Optional<UserDTO> findById(Long id) {
+        UserSnapshot current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        OverlayEntry changed = overlay.get(id);
+        if (changed != null) {
+            return Optional.ofNullable(changed.user).map(UserDTO::copy);
+        }
+        return Optional.ofNullable(current.findById(id));
+    }
+
+    /**
+     * @return the users born in the range ordered by birth date, or empty when no snapshot is being served
+     */
+    public Optional<List<UserDTO>> findByBirthDateRange(Date from, Date to) {
+        UserSnapshot current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        long fromDay = toEpochDay(from);
+        long toDay = toEpochDay(to);
+        List<UserDTO> users = new ArrayList<>();
+        current.forEachInBirthRange(fromDay, toDay, user -> {
+            if (!overlay.containsKey(user.getId())) {
+                users.add(user);
+            }
+        });
+        boolean changedUsersAdded = false;
+        for (OverlayEntry changed : overlay.values()) {
+            if (changed.user != null && changed.user.getBirthDate() != null) {
+                long birthDay = toEpochDay(changed.user.getBirthDate());
+                if (birthDay >= fromDay && birthDay <= toDay) {
+                    users.add(changed.user.copy());
+                    changedUsersAdded = true;
+                }
+            }
+        }
+        if (changedUsersAdded) {
+            users.sort(Comparator.comparing(UserDTO::getBirthDate).thenComparing(UserDTO::getId));
+        }
+        return Optional.of(users);
+    }
+
+    /**
+     * Records a write of this instance in the overlay once the current transaction commits, or right away
+     * outside a transaction; a rolled back write is never served.
+     */
+    public void onSaved(UserDTO user) {
+        if (enabled) {
+            UserDTO saved = user.copy();
+            afterCommit(() -> remember(saved.getId(), new OverlayEntry(saved, Instant.now())));
+        }
+    }
+
+    /**
+     * Like {@link #onSaved(UserDTO)}, for a deleted user.
+     */
+    public void onDeleted(Long id) {
+        if (enabled) {
+            afterCommit(() -> remember(id, new OverlayEntry(null, Instant.now())));
+        }
+    }
+
+    /**
+     * Loads the users changed since the previous catch-up into the overlay.
+     */
+    @Scheduled(fixedDelayString = "${users.snapshot.catch-up-interval:PT5S}")
+    public void catchUp() {
+        if (snapshot == null) {
+            return;
+        }
+        Instant startedAt = Instant.now();
+        for (UserEntity user : usersStore.findUserEntityByUpdatedAtAfter(caughtUpTo.minus(CLOCK_SKEW))) {
+            Instant version = user.getUpdatedAt() == null ? startedAt : user.getUpdatedAt();
+            remember(user.getId(), new OverlayEntry(userMapper.map(user, UserDTO.class), version));
+        }
+        if (!deletionsReconciled) {
+            reconcileDeletions(snapshot);
+            deletionsReconciled = true;
+        }
+        caughtUpTo = startedAt;
+    }
+
+    /**
+     * Writes a new snapshot of all users and starts serving it.
+     */
+    @Scheduled(fixedDelayString = "${users.snapshot.interval:PT15M}", initialDelayString = "${users.snapshot.initial-delay:PT1M}")
+    public void writeSnapshot() {
+        if (!enabled) {
+            return;
+        }
+        Instant startedAt = Instant.now();
+        try (UserSnapshotWriter writer = new UserSnapshotWriter(path, startedAt)) {
+            long lastId = 0;
+            List<UserEntity> page;
+            do {
+                page = usersStore.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, pageSize));
+                for (UserEntity user : page) {
+                    writer.append(user);
+                    lastId = user.getId();
+                }
+            } while (page.size() == pageSize);
+            writer.finish();
+            UserSnapshot written = UserSnapshot.open(path);
+            if (snapshot == null) {
+                caughtUpTo = startedAt;
+                deletionsReconciled = true;
+            }
+            snapshot = written;
+            // Changes older than the snapshot are part of it now
+            Instant covered = startedAt.minus(CLOCK_SKEW);
+            overlay.values().removeIf(changed -> changed.version.isBefore(covered));
+            log.info("Wrote users snapshot {} with {} users", path, written.size());
+        } catch (IOException e) {
+            log.warn("Unable to write users snapshot {}", path, e);
+        }
+    }
+
+    /**
+     * Marks the snapshot users that no longer exist in the database as deleted, walking both ID lists in order.
+     */
+    private void reconcileDeletions(UserSnapshot current) {
+        int position = 0;
+        long lastId = 0;
+        List<Long> ids;
+        do {
+            ids = usersStore.findIdsAfter(lastId, PageRequest.of(0, pageSize));
+            for (Long id : ids) {
+                while (position < current.size() && current.idAt(position) < id) {
+                    remember(current.idAt(position++), new OverlayEntry(null, current.getCreatedAt()));
+                }
+                if (position < current.size() && current.idAt(position) == id) {
+                    position++;
+                }
+                lastId = id;
+            }
+        } while (ids.size() == pageSize);
+        while (position < current.size()) {
+            remember(current.idAt(position++), new OverlayEntry(null, current.getCreatedAt()));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void remember(Long id, OverlayEntry entry) {
+        overlay.merge(id, entry, (existing, candidate) -> candidate.version.isBefore(existing.version) ? existing : candidate);
+    }
+
+    private static long toEpochDay(Date date) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()).toEpochDay();
+    }
+
+    /**
+     * A user changed after the snapshot was taken; {@code user} is {@code null} for deleted users.
+     */
+    private static final class OverlayEntry {
+        private final UserDTO user;
+        private final Instant version;
+
+        private OverlayEntry(UserDTO user, Instant version) {
+            this.user = user;
+            this.version = version;
+        }
+    }
+}
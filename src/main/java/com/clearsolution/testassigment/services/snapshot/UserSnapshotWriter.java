@@ -0,0 +1,167 @@
+package com.clearsolution.testassigment.services.snapshot;
+
+import com.clearsolution.testassigment.models.entities.UserEntity;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.clearsolution.testassigment.services.snapshot.UserSnapshotFormat.*;
+
+/**
+ * Streams users, appended in ascending ID order, into a snapshot file. Records and strings go to temporary
+ * files; only the birth index keys (8 bytes per user) are kept in memory until {@link #finish()}.
+ * The target file is replaced atomically, so readers never see a partial snapshot.
+ */
+class UserSnapshotWriter implements Closeable {
+    private static final int MAX_POOLED_STRINGS = 1 << 16;
+
+    private final Path target;
+    private final Instant createdAt;
+    private final Path recordsFile;
+    private final Path stringsFile;
+    private final DataOutputStream records;
+    private final DataOutputStream strings;
+    private final Map<String, Long> pooledStrings = new HashMap<>();
+    // DataOutputStream.size() stops counting at Integer.MAX_VALUE
+    private long stringsLength;
+    private long[] birthIndexKeys = new long[1024];
+    private int count;
+    private long lastId = Long.MIN_VALUE;
+
+    UserSnapshotWriter(Path target, Instant createdAt) throws IOException {
+        this.target = target;
+        this.createdAt = createdAt;
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        this.recordsFile = Files.createTempFile(directory, "users-records", ".tmp");
+        this.stringsFile = Files.createTempFile(directory, "users-strings", ".tmp");
+        this.records = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(recordsFile)));
+        this.strings = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stringsFile)));
+    }
+
+    void append(UserEntity user) throws IOException {
+        if (user.getId() <= lastId) {
+            throw new IllegalArgumentException("Users should be appended in ascending ID order");
+        }
+        lastId = user.getId();
+        int birthDay = user.getBirthDate() == null
+                ? NO_BIRTH_DATE
+                : (int) LocalDate.ofInstant(Instant.ofEpochMilli(user.getBirthDate().getTime()), ZoneId.systemDefault()).toEpochDay();
+        records.writeLong(user.getId());
+        records.writeInt(birthDay);
+        writeString(user.getEmail());
+        writeString(user.getFirstName());
+        writeString(user.getLastName());
+        writeString(user.getAddress());
+        writeString(user.getPhoneNumber());
+        if (count == birthIndexKeys.length) {
+            birthIndexKeys = Arrays.copyOf(birthIndexKeys, count * 2);
+        }
+        // Sorting by birth day in the high bits keeps the ID order of equal days in the low bits
+        birthIndexKeys[count] = ((long) birthDay << 32) | count;
+        count++;
+    }
+
+    void finish() throws IOException {
+        records.close();
+        strings.close();
+        long recordsOffset = HEADER_SIZE;
+        long birthIndexOffset = recordsOffset + (long) count * RECORD_SIZE;
+        long stringsOffset = birthIndexOffset + (long) count * Integer.BYTES;
+
+        Path tempTarget = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tempTarget, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC_OFFSET, MAGIC)
+                    .putInt(VERSION_OFFSET, VERSION)
+                    .putLong(COUNT_OFFSET, count)
+                    .putLong(CREATED_AT_OFFSET, createdAt.toEpochMilli())
+                    .putLong(RECORDS_OFFSET, recordsOffset)
+                    .putLong(BIRTH_INDEX_OFFSET, birthIndexOffset)
+                    .putLong(STRINGS_OFFSET, stringsOffset)
+                    .putLong(STRINGS_LENGTH_OFFSET, stringsLength);
+            writeFully(out, header);
+            transfer(recordsFile, out);
+            writeBirthIndex(out);
+            transfer(stringsFile, out);
+            out.force(true);
+        }
+        Files.move(tempTarget, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.close();
+        strings.close();
+        Files.deleteIfExists(recordsFile);
+        Files.deleteIfExists(stringsFile);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            records.writeLong(0);
+            records.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Long offset = pooledStrings.get(value);
+        if (offset == null) {
+            offset = stringsLength;
+            strings.write(bytes);
+            stringsLength += bytes.length;
+            if (pooledStrings.size() < MAX_POOLED_STRINGS) {
+                pooledStrings.put(value, offset);
+            }
+        }
+        records.writeLong(offset);
+        records.writeInt(bytes.length);
+    }
+
+    private void writeBirthIndex(FileChannel out) throws IOException {
+        long[] keys = Arrays.copyOf(birthIndexKeys, count);
+        Arrays.sort(keys);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        for (long key : keys) {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                writeFully(out, buffer);
+                buffer.clear();
+            }
+            buffer.putInt((int) key);
+        }
+        buffer.flip();
+        writeFully(out, buffer);
+    }
+
+    private static void transfer(Path source, FileChannel out) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long position = 0;
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+-- Adds the updated_at and birthday_mmdd columns to users tables created before they existed, fills
+-- birthday_mmdd for the existing users and builds the indexes on both. New databases get all of it from
+-- schema.sql; run this once on older databases before the application that reads the columns is deployed:
+--
+--   psql -d users_db -f add-user-columns.sql
+--
+-- Adding a nullable column without a default only changes the catalog, so the ALTERs are quick. The
+-- backfill changes rows in batches of id ranges, each committed on its own, so the table is never locked
+-- for longer than one batch. Users written by instances of the old application while this runs have no
+-- birthday; once they are all replaced, fill those with another CALL backfill_user_birthdays().
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS birthday_mmdd SMALLINT;
+
+CREATE OR REPLACE PROCEDURE backfill_user_birthdays(batch_size INTEGER DEFAULT 5000)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    last_id BIGINT := 0;
+    max_id  BIGINT;
+BEGIN
+    SELECT coalesce(max(id), 0) INTO max_id FROM users;
+    WHILE last_id < max_id LOOP
+        UPDATE users
+        SET birthday_mmdd = EXTRACT(MONTH FROM birth_date) * 100 + EXTRACT(DAY FROM birth_date)
+        WHERE id > last_id AND id <= last_id + batch_size
+          AND birthday_mmdd IS NULL AND birth_date IS NOT NULL;
+        last_id := last_id + batch_size;
+        COMMIT;
+    END LOOP;
+END;
+$$;
+
+CALL backfill_user_birthdays();
+
+-- Built without blocking writes; CONCURRENTLY can't run inside a transaction or a procedure. If a build
+-- fails, drop the INVALID index and retry.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_updated_at_idx ON users (updated_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_birthday_mmdd_idx ON users (birthday_mmdd, id);
@@ -0,0 +1,75 @@
+-- Brings existing users to the canonical email form (trimmed, lower case), removes the duplicates it
+-- reveals and adds the unique index the application relies on. New databases get the index from
+-- schema.sql; run this once on databases created before emails were normalized, after the application
+-- that normalizes emails on write is deployed:
+--
+--   psql -d users_db -f normalize-emails.sql
+--
+-- Rows are changed in batches of id ranges, each committed on its own, so the table is never locked for
+-- longer than one batch. Duplicates keep the earliest registered user (lowest ID); the others are copied to
+-- users_email_duplicates before they are deleted.
+
+CREATE TABLE IF NOT EXISTS users_email_duplicates (
+    LIKE users,
+    kept_user_id BIGINT NOT NULL,
+    archived_at  TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE OR REPLACE PROCEDURE normalize_user_emails(batch_size INTEGER DEFAULT 5000)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    last_id       BIGINT := 0;
+    max_id        BIGINT;
+    batch_last_id BIGINT;
+BEGIN
+    SELECT coalesce(max(id), 0) INTO max_id FROM users;
+    WHILE last_id < max_id LOOP
+        UPDATE users
+        SET email = lower(btrim(email))
+        WHERE id > last_id AND id <= last_id + batch_size
+          AND email <> lower(btrim(email));
+        last_id := last_id + batch_size;
+        COMMIT;
+    END LOOP;
+
+    -- The duplicate set is computed once, with one scan of users, and the batches page through it by ID
+    DROP TABLE IF EXISTS email_duplicates;
+    CREATE TEMP TABLE email_duplicates AS
+    SELECT id, kept_user_id
+    FROM (SELECT id,
+                 min(id) OVER (PARTITION BY email) AS kept_user_id,
+                 count(*) OVER (PARTITION BY email) AS copies
+          FROM users) grouped
+    WHERE copies > 1 AND id <> kept_user_id;
+    ALTER TABLE email_duplicates ADD PRIMARY KEY (id);
+    COMMIT;
+
+    last_id := 0;
+    LOOP
+        SELECT max(id) INTO batch_last_id
+        FROM (SELECT id FROM email_duplicates WHERE id > last_id ORDER BY id LIMIT batch_size) batch;
+        EXIT WHEN batch_last_id IS NULL;
+
+        WITH archived AS (
+            INSERT INTO users_email_duplicates
+            SELECT u.*, d.kept_user_id, now()
+            FROM email_duplicates d JOIN users u ON u.id = d.id
+            WHERE d.id > last_id AND d.id <= batch_last_id
+            RETURNING id
+        )
+        DELETE FROM users WHERE id IN (SELECT id FROM archived);
+        last_id := batch_last_id;
+        COMMIT;
+    END LOOP;
+
+    DROP TABLE email_duplicates;
+END;
+$$;
+
+CALL normalize_user_emails();
+
+-- Builds without blocking writes; CONCURRENTLY can't run inside a transaction or a procedure. If it
+-- fails (e.g. a duplicate was written by an old instance meanwhile), drop the INVALID index, run the
+-- procedure again and retry.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS users_email_key ON users (email);
@@ -0,0 +1,30 @@
+CREATE SEQUENCE IF NOT EXISTS users_shard_id_seq;
+
+CREATE TABLE IF NOT EXISTS users (
+    id           BIGINT PRIMARY KEY,
+    email        VARCHAR(255),
+    first_name   VARCHAR(255),
+    last_name    VARCHAR(255),
+    birth_date   DATE,
+    address      VARCHAR(255),
+    phone_number VARCHAR(255),
+    updated_at   TIMESTAMP,
+    birthday_mmdd SMALLINT
+);
+
+CREATE INDEX IF NOT EXISTS users_birth_date_idx ON users (birth_date, id);
+CREATE INDEX IF NOT EXISTS users_updated_at_idx ON users (updated_at);
+CREATE INDEX IF NOT EXISTS users_birthday_mmdd_idx ON users (birthday_mmdd, id);
+
+-- Email lookup index, stored on the shard chosen by the email hash
+CREATE TABLE IF NOT EXISTS user_emails (
+    email   VARCHAR(255) CONSTRAINT user_emails_pkey PRIMARY KEY,
+    user_id BIGINT NOT NULL
+);
+
+-- Position of this database among the shards, checked on startup: users are routed by id % shard count and
+-- the email hash, so the shards can't be added, removed or reordered without moving the rows
+CREATE TABLE IF NOT EXISTS users_shard_layout (
+    shard_index INTEGER NOT NULL,
+    shard_count INTEGER NOT NULL
+);
@@ -0,0 +1,16 @@
+CREATE TABLE IF NOT EXISTS users (
+    id           BIGSERIAL PRIMARY KEY,
+    email        VARCHAR(255) CONSTRAINT users_email_key UNIQUE,
+    first_name   VARCHAR(255),
+    last_name    VARCHAR(255),
+    birth_date   DATE,
+    address      VARCHAR(255),
+    phone_number VARCHAR(255),
+    updated_at   TIMESTAMP,
+    birthday_mmdd SMALLINT
+);
+
+-- Runs on every start, so only idempotent DDL belongs here. Tables created before updated_at and
+-- birthday_mmdd existed get them from db/migration/add-user-columns.sql.
+CREATE INDEX IF NOT EXISTS users_updated_at_idx ON users (updated_at);
+CREATE INDEX IF NOT EXISTS users_birthday_mmdd_idx ON users (birthday_mmdd, id);
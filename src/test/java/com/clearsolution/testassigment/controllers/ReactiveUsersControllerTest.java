@@ -0,0 +1,83 @@
+package com.clearsolution.testassigment.controllers;
+
+import com.clearsolution.testassigment.exceptions.GlobalExceptionsHandler;
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.services.ReactiveUsersService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the {@link UsersControllerContractTest} contract against the reactive stack.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactiveUsersControllerTest extends UsersControllerContractTest {
+    private WebTestClient webTestClient;
+
+    @Mock
+    private ReactiveUsersService usersService;
+
+    @BeforeEach
+    void setup() {
+        this.webTestClient = WebTestClient
+                .bindToController(new ReactiveUsersController(usersService))
+                .controllerAdvice(new GlobalExceptionsHandler())
+                .build();
+    }
+
+    @Override
+    protected WebTestClient client() {
+        return webTestClient;
+    }
+
+    @Override
+    protected void givenUser(Long id, UserDTO user) {
+        when(usersService.getUserById(id)).thenReturn(Mono.just(user));
+    }
+
+    @Override
+    protected void givenCreatedUser(UserDTO user) {
+        when(usersService.createUser(any(UserDTO.class))).thenReturn(Mono.just(user));
+    }
+
+    @Override
+    protected void givenUpdatedUser(UserDTO user) {
+        when(usersService.updateUser(any(UserDTO.class))).thenReturn(Mono.just(user));
+    }
+
+    @Override
+    protected void givenUpdateFails(RuntimeException exception) {
+        when(usersService.updateUser(any(UserDTO.class))).thenReturn(Mono.error(exception));
+    }
+
+    @Override
+    protected void givenUpdatedFields(Long id, Map<String, Object> fields, UserDTO user) {
+        when(usersService.updateUserFields(id, fields)).thenReturn(Mono.just(user));
+    }
+
+    @Override
+    protected void givenFieldsUpdateFails(Long id, Map<String, Object> fields, RuntimeException exception) {
+        when(usersService.updateUserFields(id, fields)).thenReturn(Mono.error(exception));
+    }
+
+    @Override
+    protected void givenUsersInBirthDateRange(List<UserDTO> users) {
+        when(usersService.getUsersByBirthDateRange(any(Date.class), any(Date.class))).thenReturn(Flux.fromIterable(users));
+    }
+
+    @Override
+    protected void givenDeleteFails(Long id, RuntimeException exception) {
+        when(usersService.deleteUser(id)).thenReturn(Mono.error(exception));
+    }
+}
@@ -0,0 +1,271 @@
+package com.clearsolution.testassigment.controllers;
+
+import com.clearsolution.testassigment.exceptions.UserNotFoundException;
+import com.clearsolution.testassigment.exceptions.WrongRequestException;
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * The users API contract, run against both the servlet and the reactive stack. Subclasses bind the client to
+ * their controller and stub their flavour of the users service.
+ */
+abstract class UsersControllerContractTest {
+
+    UserDTO newValidUser = new UserDTO.Builder()
+            .id(0l)
+            .email("romakush@gmail.com")
+            .firstName("Roman")
+            .lastName("Kushnir")
+            .birthDate(new Date(85, Calendar.JANUARY, 5))
+            .address("Some address")
+            .phoneNumber("+380935288886")
+            .build();
+
+    UserDTO newInvalidUser = new UserDTO.Builder()
+            .id(0l)
+            .email("romakushgmail.com")
+            .firstName("Roman")
+            .lastName("Kushnir")
+            .birthDate(new Date(85, Calendar.JANUARY, 5))
+            .address("Some address")
+            .phoneNumber("380958886")
+            .build();
+
+    UserDTO createdUser = new UserDTO.Builder()
+            .id(1L)
+            .email("romakush@gmail.com")
+            .firstName("Roman")
+            .lastName("Kushnir")
+            .birthDate(new Date(85, Calendar.JANUARY, 5))
+            .address("Some address")
+            .phoneNumber("+380935288886")
+            .build();
+
+    UserDTO updatedUser = new UserDTO.Builder()
+            .id(1L)
+            .email("romakush85@gmail.com")
+            .firstName("Roma")
+            .lastName("Kushnir")
+            .birthDate(new Date(85, Calendar.JANUARY, 5))
+            .address("Updated address")
+            .phoneNumber("+380935288886")
+            .build();
+
+    protected abstract WebTestClient client();
+
+    protected abstract void givenUser(Long id, UserDTO user);
+
+    protected abstract void givenCreatedUser(UserDTO user);
+
+    protected abstract void givenUpdatedUser(UserDTO user);
+
+    protected abstract void givenUpdateFails(RuntimeException exception);
+
+    protected abstract void givenUpdatedFields(Long id, Map<String, Object> fields, UserDTO user);
+
+    protected abstract void givenFieldsUpdateFails(Long id, Map<String, Object> fields, RuntimeException exception);
+
+    protected abstract void givenUsersInBirthDateRange(List<UserDTO> users);
+
+    protected abstract void givenDeleteFails(Long id, RuntimeException exception);
+
+    protected String toJson(Object value) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+        return objectMapper.writeValueAsString(value);
+    }
+
+    @Test
+    void getUserByIdShouldReturnCreatedUser() {
+        givenUser(1L, createdUser);
+
+        client().get().uri("/users/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.firstName").isEqualTo("Roman")
+                .jsonPath("$.email").isEqualTo("romakush@gmail.com");
+    }
+
+    @Test
+    void createUserShouldReturnStatusCreatedInCaseOfValidUser() throws Exception {
+        givenCreatedUser(createdUser);
+
+        client().post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(newValidUser))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.firstName").isEqualTo("Roman")
+                .jsonPath("$.email").isEqualTo("romakush@gmail.com");
+    }
+
+    @Test
+    void createUserShouldReturnBadRequestInCaseOfInvalidUser() throws Exception {
+        client().post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(newInvalidUser))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("Email is incorrect");
+    }
+
+    @Test
+    void updateUserShouldReturnUpdatedUser() throws Exception {
+        givenUpdatedUser(updatedUser);
+
+        client().put().uri("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(updatedUser))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.firstName").isEqualTo("Roma")
+                .jsonPath("$.email").isEqualTo("romakush85@gmail.com");
+    }
+
+    @Test
+    void updateUserShouldReturnWrongRequestException() throws Exception {
+        client().put().uri("/users/2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(updatedUser))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User's ID in path doesn't match user's ID in request body ");
+    }
+
+    @Test
+    void updateUserWithTakenEmailShouldReturnConflict() throws Exception {
+        givenUpdateFails(new DataIntegrityViolationException("could not execute statement", new SQLException(
+                "ERROR: duplicate key value violates unique constraint \"users_email_key\"", "23505")));
+
+        client().put().uri("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(updatedUser))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User conflicts with an existing user, the email is already taken");
+    }
+
+    @Test
+    void updateUserViolatingAnotherConstraintShouldNotReturnConflict() throws Exception {
+        givenUpdateFails(new DataIntegrityViolationException("could not execute statement", new SQLException(
+                "ERROR: value too long for type character varying(255)", "22001")));
+
+        client().put().uri("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(updatedUser))
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void updateUserShouldReturnUserNotFoundExceptionInCaseOfWrongId() throws Exception {
+        givenUpdateFails(new UserNotFoundException("User is not found by ID 1"));
+
+        client().put().uri("/users/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(updatedUser))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User is not found by ID 1");
+    }
+
+    @Test
+    void updateUserFieldsShouldReturnUpdatedUser() throws Exception {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("email", "romakush85@gmail.com");
+        fields.put("firstName", "Roma");
+        fields.put("address", "Updated address");
+
+        givenUpdatedFields(createdUser.getId(), fields, updatedUser);
+
+        client().patch().uri("/users/{id}", createdUser.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(fields))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.email").isEqualTo("romakush85@gmail.com")
+                .jsonPath("$.firstName").isEqualTo("Roma")
+                .jsonPath("$.address").isEqualTo("Updated address");
+    }
+
+    @Test
+    void updateUserFieldsShouldReturnWrongRequestExceptionForInvalidField() throws Exception {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("invalidField", "InvalidValue");
+
+        givenFieldsUpdateFails(createdUser.getId(), fields,
+                new WrongRequestException("User haven't the field invalidField"));
+
+        client().patch().uri("/users/{id}", createdUser.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(toJson(fields))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User haven't the field invalidField");
+    }
+
+    @Test
+    void getUsersByBirthDateRangeShouldReturnListOfUsers() {
+        givenUsersInBirthDateRange(List.of(createdUser));
+
+        client().get().uri(uriBuilder -> uriBuilder.path("/users/birthdate")
+                        .queryParam("from", "1985-01-01")
+                        .queryParam("to", "1999-12-01")
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].firstName").isEqualTo("Roman")
+                .jsonPath("$[0].lastName").isEqualTo("Kushnir");
+    }
+
+    @Test
+    void getUsersByBirthDateRangeShouldReturnValidationError() {
+        client().get().uri(uriBuilder -> uriBuilder.path("/users/birthdate")
+                        .queryParam("from", "2000-07-05")
+                        .queryParam("to", "1999-05-05")
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Invalid date range: 'from' should be before 'to'");
+    }
+
+    @Test
+    void deleteUserShouldReturnUserNotFoundExceptionInCaseOfWrongId() {
+        givenDeleteFails(100L, new UserNotFoundException("User is not found by ID 100"));
+
+        client().delete().uri("/users/100")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User is not found by ID 100");
+    }
+}
@@ -1,18 +1,20 @@
 package com.clearsolution.testassigment.controllers;
 
 import com.clearsolution.testassigment.exceptions.GlobalExceptionsHandler;
-import com.clearsolution.testassigment.exceptions.UserNotFoundException;
 import com.clearsolution.testassigment.exceptions.ValidationException;
-import com.clearsolution.testassigment.exceptions.WrongRequestException;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doThrow;
-import static org.springframework.test.web.servlet.setup.MockMvcBuilders.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.*;
 import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.models.DTOs.UserLookupDTO;
+import com.clearsolution.testassigment.services.IdempotencyStore;
+import com.clearsolution.testassigment.services.UserFieldSet;
+import com.clearsolution.testassigment.services.UserResponseCache;
 import com.clearsolution.testassigment.services.UsersService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,18 +22,30 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.client.MockMvcWebTestClient;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
-import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.time.MonthDay;
+import java.time.Year;
+import java.time.Duration;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
+/**
+ * Runs the {@link UsersControllerContractTest} contract against the servlet stack, plus the servlet only
+ * features: response cache, gzip bodies, field selection, multi-get and idempotency keys.
+ */
 @WebMvcTest(UsersController.class)
-class UsersControllerTest {
+class UsersControllerTest extends UsersControllerContractTest {
     @Autowired
     private MockMvc mockMvc;
 
@@ -42,241 +56,204 @@ class UsersControllerTest {
     @BeforeEach
     void setup() {
         this.mockMvc = MockMvcBuilders
-                .standaloneSetup(new UsersController(usersService))
+                .standaloneSetup(new UsersController(usersService, new IdempotencyStore(new ObjectMapper(), 100, Duration.ofMinutes(1), 4),
+                        new UserResponseCache(new ObjectMapper(), DataSize.ofKilobytes(64), Duration.ofMinutes(1)),
+                        new ObjectMapper()))
                 .setControllerAdvice(new GlobalExceptionsHandler())
                 .build();
     }
 
-     UserDTO newValidUser = new UserDTO.Builder()
-            .id(0l)
-            .email("romakush@gmail.com")
-            .firstName("Roman")
-            .lastName("Kushnir")
-            .birthDate(new Date(85, Calendar.JANUARY, 5))
-            .address("Some address")
-            .phoneNumber("+380935288886")
-            .build();
-
-    UserDTO newInvalidUser = new UserDTO.Builder()
-            .id(0l)
-            .email("romakushgmail.com")
-            .firstName("Roman")
-            .lastName("Kushnir")
-            .birthDate(new Date(85, Calendar.JANUARY, 5))
-            .address("Some address")
-            .phoneNumber("380958886")
-            .build();
-
-    UserDTO createdUser = new UserDTO.Builder()
-            .id(1L)
-            .email("romakush@gmail.com")
-            .firstName("Roman")
-            .lastName("Kushnir")
-            .birthDate(new Date(85, Calendar.JANUARY, 5))
-            .address("Some address")
-            .phoneNumber("+380935288886")
-            .build();
-
-    UserDTO updatedUser = new UserDTO.Builder()
-            .id(1L)
-            .email("romakush85@gmail.com")
-            .firstName("Roma")
-            .lastName("Kushnir")
-            .birthDate(new Date(85, Calendar.JANUARY, 5))
-            .address("Updated address")
-            .phoneNumber("+380935288886")
-            .build();
+    @Override
+    protected WebTestClient client() {
+        return MockMvcWebTestClient.bindTo(mockMvc).build();
+    }
+
+    @Override
+    protected void givenUser(Long id, UserDTO user) {
+        when(usersService.getUserById(id)).thenReturn(user);
+    }
+
+    @Override
+    protected void givenCreatedUser(UserDTO user) {
+        when(usersService.createUser(any(UserDTO.class))).thenReturn(user);
+    }
+
+    @Override
+    protected void givenUpdatedUser(UserDTO user) {
+        when(usersService.updateUser(any(UserDTO.class))).thenReturn(user);
+    }
+
+    @Override
+    protected void givenUpdateFails(RuntimeException exception) {
+        when(usersService.updateUser(any(UserDTO.class))).thenThrow(exception);
+    }
 
+    @Override
+    protected void givenUpdatedFields(Long id, Map<String, Object> fields, UserDTO user) {
+        when(usersService.updateUserFields(id, fields)).thenReturn(user);
+    }
+
+    @Override
+    protected void givenFieldsUpdateFails(Long id, Map<String, Object> fields, RuntimeException exception) {
+        when(usersService.updateUserFields(id, fields)).thenThrow(exception);
+    }
+
+    @Override
+    protected void givenUsersInBirthDateRange(List<UserDTO> users) {
+        when(usersService.getUsersByBirthDateRange(any(Date.class), any(Date.class))).thenReturn(users);
+    }
+
+    @Override
+    protected void givenDeleteFails(Long id, RuntimeException exception) {
+        doThrow(exception).when(usersService).deleteUser(id);
+    }
 
     @Test
-    void getUserByIdShouldReturnCreatedUser() throws Exception {
+    void getUserByIdShouldServeRepeatedReadsFromResponseCache() throws Exception {
         when(usersService.getUserById(1L)).thenReturn(createdUser);
 
+        mockMvc.perform(get("/users/1")).andExpect(status().isOk());
         mockMvc.perform(get("/users/1"))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.firstName").value("Roman"))
                 .andExpect(jsonPath("$.email").value("romakush@gmail.com"));
+
+        verify(usersService, times(1)).getUserById(1L);
     }
 
     @Test
-    void createUserShouldReturnStatusCreatedInCaseOfValidUser() throws Exception {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
-        String json = objectMapper.writeValueAsString(newValidUser);
+    void getUserByIdShouldReturnGzipBodyWhenAccepted() throws Exception {
+        when(usersService.getUserById(1L)).thenReturn(createdUser);
 
-        when(usersService.createUser(any(UserDTO.class))).thenReturn(createdUser);
+        byte[] body = mockMvc.perform(get("/users/1").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
 
-        mockMvc.perform(post("/users")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding("UTF-8")
-                        .content(json))
-                .andDo(print())
-                .andExpect(status().isCreated())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.firstName").value("Roman"))
-                .andExpect(jsonPath("$.email").value("romakush@gmail.com"));
+        try (GZIPInputStream json = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertTrue(new String(json.readAllBytes(), StandardCharsets.UTF_8).contains("\"email\":\"romakush@gmail.com\""));
+        }
     }
 
     @Test
-    void createUserShouldReturnMethodArgumentNotValidExceptionInCaseOfInvalidUser() throws Exception {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
-        String json = objectMapper.writeValueAsString(newInvalidUser);
-        mockMvc.perform(post("/users")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding("UTF-8")
-                        .content(json))
-                .andDo(print())
-                .andExpect(status().isBadRequest())
-                .andExpect(result -> {
-                    if (!(result.getResolvedException() instanceof MethodArgumentNotValidException)) {
-                        throw new AssertionError("Expected MethodArgumentNotValidException");
-                    }
-                });
+    void getUserByIdShouldReturnPlainBodyWhenGzipIsRefused() throws Exception {
+        when(usersService.getUserById(1L)).thenReturn(createdUser);
+
+        mockMvc.perform(get("/users/1").header("Accept-Encoding", "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.email").value("romakush@gmail.com"));
+        mockMvc.perform(get("/users/1").header("Accept-Encoding", "*, gzip; q=0.0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
     }
 
     @Test
-    void updateUserShouldReturnUpdatedUser() throws Exception {
-        when(usersService.updateUser(any(UserDTO.class))).thenReturn(updatedUser);
+    void getUserByIdShouldReturnGzipBodyForAliasAndWildcard() throws Exception {
+        when(usersService.getUserById(1L)).thenReturn(createdUser);
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
-        String json = objectMapper.writeValueAsString(updatedUser);
+        mockMvc.perform(get("/users/1").header("Accept-Encoding", "x-gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+        mockMvc.perform(get("/users/1").header("Accept-Encoding", "deflate;q=0.5, *;q=0.1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+        mockMvc.perform(get("/users/1").header("Accept-Encoding", "deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+    }
 
-        mockMvc.perform(put("/users/1")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding("UTF-8")
-                        .content(json))
+    @Test
+    void getUserByIdWithFieldsShouldReturnSelectedFieldsOnly() throws Exception {
+        when(usersService.getUserFieldsById(any(), any(UserFieldSet.class))).thenReturn(createdUser);
+
+        mockMvc.perform(get("/users/1").param("fields", "email,id"))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.firstName").value("Roma"))
-                .andExpect(jsonPath("$.email").value("romakush85@gmail.com"));
+                .andExpect(jsonPath("$.email").value("romakush@gmail.com"))
+                .andExpect(jsonPath("$.firstName").doesNotExist())
+                .andExpect(jsonPath("$.address").doesNotExist());
     }
 
     @Test
-    void updateUserShouldReturnWrongRequestException() throws Exception {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
-        String json = objectMapper.writeValueAsString(updatedUser);
-
-        mockMvc.perform(put("/users/2")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding("UTF-8")
-                        .content(json))
-                .andDo(print())
+    void getUserByIdWithUnknownFieldShouldReturnValidationError() throws Exception {
+        mockMvc.perform(get("/users/1").param("fields", "id,password"))
                 .andExpect(status().isBadRequest())
-                .andExpect(result -> {
-                    if (!(result.getResolvedException() instanceof WrongRequestException)) {
-                        throw new AssertionError("Expected WrongRequestException");
-                    }
-                });
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof ValidationException));
     }
 
     @Test
-    void updateUserShouldReturnUserNotFoundExceptionInCaseOfWrongId() throws Exception {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
-        String json = objectMapper.writeValueAsString(updatedUser);
+    void getUsersByIdsShouldReturnUsersInRequestOrder() throws Exception {
+        when(usersService.getUsersByIds(List.of(1L, 5L)))
+                .thenReturn(List.of(new UserLookupDTO(1L, true, createdUser), new UserLookupDTO(5L, false, null)));
 
-        when(usersService.updateUser(any(UserDTO.class))).thenThrow(UserNotFoundException.class);
-
-        mockMvc.perform(put("/users/1")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding("UTF-8")
-                        .content(json))
-                .andDo(print())
-                .andExpect(status().isNotFound())
-                .andExpect(result -> {
-                    if (!(result.getResolvedException() instanceof UserNotFoundException)) {
-                        throw new AssertionError("Expected UserNotFoundException");
-                    }
-                });
+        mockMvc.perform(get("/users").param("ids", "1,5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].user.email").value("romakush@gmail.com"))
+                .andExpect(jsonPath("$[1].id").value(5))
+                .andExpect(jsonPath("$[1].found").value(false));
     }
 
     @Test
-    void updateUserFieldsShouldReturnUpdatedUser() throws Exception {
-        Map<String, Object> fields = new HashMap<>();
-        fields.put("email", "romakush85@gmail.com");
-        fields.put("firstName", "Roma");
-        fields.put("address", "Updated address");
-        ObjectMapper objectMapper = new ObjectMapper();
-        String jsonFields = objectMapper.writeValueAsString(fields);
-
-        when(usersService.updateUserFields(createdUser.getId(), fields)).thenReturn(updatedUser);
+    void lookupUsersByIdsShouldReturnUsersInRequestOrder() throws Exception {
+        when(usersService.getUsersByIds(List.of(5L, 1L)))
+                .thenReturn(List.of(new UserLookupDTO(5L, false, null), new UserLookupDTO(1L, true, createdUser)));
 
-        mockMvc.perform(patch("/users/{id}", createdUser.getId())
+        mockMvc.perform(post("/users/lookup")
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content(jsonFields))
+                        .content("[5, 1]"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.email").value("romakush85@gmail.com"))
-                .andExpect(jsonPath("$.firstName").value("Roma"))
-                .andExpect(jsonPath("$.address").value("Updated address"));
+                .andExpect(jsonPath("$[0].found").value(false))
+                .andExpect(jsonPath("$[1].user.firstName").value("Roman"));
     }
 
     @Test
-    void updateUserFieldsShouldReturnWrongRequestExceptionForInvalidField() throws Exception {
-        Map<String, Object> fields = new HashMap<>();
-        fields.put("invalidField", "InvalidValue");
+    void createUserWithSameIdempotencyKeyShouldReplayOriginalResponse() throws Exception {
         ObjectMapper objectMapper = new ObjectMapper();
-        String jsonFields = objectMapper.writeValueAsString(fields);
+        objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+        String json = objectMapper.writeValueAsString(newValidUser);
 
-        when(usersService.updateUserFields(createdUser.getId(), fields)).thenThrow(WrongRequestException.class);
+        when(usersService.createUser(any(UserDTO.class))).thenReturn(createdUser);
 
-        // Perform the PATCH request
-        mockMvc.perform(patch("/users/{id}", createdUser.getId())
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(jsonFields))
-                .andExpect(status().isBadRequest())
-                .andExpect(result -> {
-                    if (!(result.getResolvedException() instanceof WrongRequestException)) {
-                        throw new AssertionError("Expected WrongRequestException");
-                    }
-                });
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/users")
+                            .header("Idempotency-Key", "retry-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("UTF-8")
+                            .content(json))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.id").value(1));
+        }
+        verify(usersService, times(1)).createUser(any(UserDTO.class));
     }
 
     @Test
-    void getUsersByBirthDateRangeShouldReturnListOfUsers() throws Exception {
-        List<UserDTO> users = new ArrayList<>();
-        users.add(createdUser);
-    when(usersService.getUsersByBirthDateRange(any(Date.class), any(Date.class))).thenReturn(users);
-
-    mockMvc.perform(get("/users/birthdate")
-                .param("from", "1985-01-01")
-                .param("to", "1999-12-01"))
-            .andExpect(status().isOk())
-            .andExpect(jsonPath("$[0].firstName").value("Roman"))
-            .andExpect(jsonPath("$[0].lastName").value("Kushnir"));
-}
+    void getUsersByBirthDateRangeWithFieldsShouldReturnSelectedFieldsOnly() throws Exception {
+        when(usersService.getUsersByBirthDateRange(any(Date.class), any(Date.class), any(UserFieldSet.class)))
+                .thenReturn(List.of(createdUser));
 
-    @Test
-    void getUsersByBirthDateRangeShouldReturnValidationError() throws Exception {
         mockMvc.perform(get("/users/birthdate")
-                        .param("from", "2000-07-05")
-                        .param("to", "1999-05-05"))
-                .andExpect(status().isBadRequest())
-                .andExpect(result -> assertTrue(result.getResolvedException() instanceof ValidationException))
-                .andExpect(jsonPath("$.message").value("Invalid date range: 'from' should be before 'to'"));
+                        .param("from", "1985-01-01")
+                        .param("to", "1999-12-01")
+                        .param("fields", "firstName,birthDate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].firstName").value("Roman"))
+                .andExpect(jsonPath("$[0].birthDate").exists())
+                .andExpect(jsonPath("$[0].email").doesNotExist());
     }
 
     @Test
-    void deleteUserShouldReturnUserNotFoundExceptionInCaseOfWrongId() throws Exception {
-        doThrow(UserNotFoundException.class).when(usersService).deleteUser(100l);
-
-        mockMvc.perform(delete("/users/100")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding("UTF-8"))
-                .andDo(print())
-                .andExpect(status().isNotFound())
-                .andExpect(result -> {
-                    if (!(result.getResolvedException() instanceof UserNotFoundException)) {
-                        throw new AssertionError("Expected UserNotFoundException");
-                    }
-                });
+    void getUsersByBirthdayRangeShouldParseMonthDays() throws Exception {
+        when(usersService.getUsersByBirthdayRange(MonthDay.of(12, 25), MonthDay.of(1, 5), Year.of(2025)))
+                .thenReturn(List.of(createdUser));
+
+        mockMvc.perform(get("/users/birthdays")
+                        .param("from", "12-25")
+                        .param("to", "01-05")
+                        .param("year", "2025"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value("romakush@gmail.com"));
     }
-
-}
\ No newline at end of file
+}
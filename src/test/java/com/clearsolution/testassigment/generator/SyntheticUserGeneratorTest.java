@@ -0,0 +1,91 @@
+package com.clearsolution.testassigment.generator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticUserGeneratorTest {
+    private static final LocalDate REFERENCE_DATE = LocalDate.of(2024, 1, 1);
+
+    private final SyntheticUserGenerator generator = new SyntheticUserGenerator(42, REFERENCE_DATE, 18, 90, 38, 12);
+
+    @Test
+    void sameSeedShouldGenerateSameUsers() {
+        SyntheticUserGenerator sameSeed = new SyntheticUserGenerator(42, REFERENCE_DATE, 18, 90, 38, 12);
+        SyntheticUserGenerator otherSeed = new SyntheticUserGenerator(43, REFERENCE_DATE, 18, 90, 38, 12);
+        for (long index = 0; index < 100; index++) {
+            assertEquals(generator.user(index), sameSeed.user(index));
+        }
+        assertNotEquals(generator.user(7).birthDate(), otherSeed.user(7).birthDate());
+    }
+
+    @Test
+    void generatedUsersShouldBeValid() {
+        Set<String> emails = new HashSet<>();
+        for (long index = 0; index < 10_000; index++) {
+            SyntheticUser user = generator.user(index);
+            assertTrue(emails.add(user.email()));
+            assertThat(user.phoneNumber()).matches("^\\+\\d{12}$");
+            int age = Period.between(user.birthDate(), REFERENCE_DATE).getYears();
+            assertThat(age).isBetween(18, 90);
+            assertEquals(user.birthDate().getMonthValue() * 100 + user.birthDate().getDayOfMonth(), user.birthdayMmdd());
+        }
+    }
+
+    @Test
+    void agesShouldBeClippedToTheConfiguredRange() {
+        SyntheticUserGenerator narrowRange = new SyntheticUserGenerator(42, REFERENCE_DATE, 18, 20, 38, 12);
+        Set<Integer> ages = new HashSet<>();
+        for (long index = 0; index < 10_000; index++) {
+            ages.add(Period.between(narrowRange.user(index).birthDate(), REFERENCE_DATE).getYears());
+        }
+        assertThat(ages).containsExactlyInAnyOrder(18, 19, 20);
+    }
+
+    @Test
+    void csvStreamShouldContainOneRowPerUser() throws Exception {
+        String csv = new String(new SyntheticUserCsvStream(generator, 100, 1_100, "2024-01-01 00:00").readAllBytes(),
+                StandardCharsets.UTF_8);
+
+        String[] rows = csv.split("\n");
+        assertEquals(1_000, rows.length);
+        assertTrue(csv.endsWith("\n"));
+        for (int row = 0; row < rows.length; row++) {
+            SyntheticUser user = generator.user(100 + row);
+            assertEquals(String.join(",", user.email(), user.firstName(), user.lastName(), user.birthDate().toString(),
+                    '"' + user.address() + '"', user.phoneNumber(), "2024-01-01 00:00",
+                    String.valueOf(user.birthdayMmdd())), rows[row]);
+        }
+    }
+
+    @Test
+    void loaderShouldInsertAllPartitions() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:generated-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+
+        long loaded = new UsersBulkLoader(dataSource, generator, REFERENCE_DATE.atStartOfDay())
+                .load(100, 1_000, 4, 64);
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertEquals(1_000, loaded);
+        assertEquals(1_000, jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class));
+        assertEquals(generator.user(100).email(),
+                jdbc.queryForObject("SELECT email FROM users WHERE email LIKE ?", String.class, "%.100@example.com"));
+        assertEquals(LocalDateTime.of(2024, 1, 1, 0, 0),
+                jdbc.queryForObject("SELECT MAX(updated_at) FROM users", LocalDateTime.class));
+    }
+}
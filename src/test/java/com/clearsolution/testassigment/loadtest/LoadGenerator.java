@@ -0,0 +1,118 @@
+package com.clearsolution.testassigment.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop generator: requests are issued on a fixed schedule whether or not earlier ones have
+ * completed, and each latency is measured from the scheduled start of its request.
+ */
+class LoadGenerator {
+    private final LoadTestSettings settings;
+    private final HttpClient httpClient;
+    private final UserIdPool idPool = new UserIdPool();
+    private final UserRequests requests;
+    private final Operation[] weightedOperations;
+    // Position in the seeded schedule, only advanced by the scheduling thread
+    private long nextRequestIndex;
+
+    LoadGenerator(LoadTestSettings settings, String baseUrl) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        this.requests = new UserRequests(baseUrl, idPool, settings.getRunId());
+        this.weightedOperations = weightedOperations(settings.getMix());
+    }
+
+    LoadTestReport run() throws InterruptedException, IOException {
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+        seedUsers(random);
+        if (settings.getWarmupSeconds() > 0) {
+            runPhase(random, settings.getWarmupSeconds(), new LoadTestReport());
+        }
+        LoadTestReport report = new LoadTestReport();
+        runPhase(random, settings.getDurationSeconds(), report);
+        report.finish();
+        return report;
+    }
+
+    private void seedUsers(SplittableRandom random) throws IOException, InterruptedException {
+        for (int i = 0; i < settings.getSeedUsers(); i++) {
+            HttpResponse<String> response = httpClient.send(requests.create(random, nextRequestIndex++), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Unable to create seed user: " + response.statusCode() + " " + response.body());
+            }
+            idPool.add(requests.readId(response.body()));
+        }
+    }
+
+    private void runPhase(SplittableRandom random, int seconds, LoadTestReport report) throws InterruptedException {
+        ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "load-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / settings.getRate()));
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (long intendedStart = start; intendedStart < end; intendedStart += intervalNanos) {
+            long now;
+            while ((now = System.nanoTime()) < intendedStart) {
+                LockSupport.parkNanos(intendedStart - now);
+            }
+            Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+            SplittableRandom requestRandom = random.split();
+            long scheduledAt = intendedStart;
+            long requestIndex = nextRequestIndex++;
+            workers.execute(() -> execute(operation, requestRandom, requestIndex, scheduledAt, report));
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void execute(Operation operation, SplittableRandom random, long requestIndex, long scheduledAt,
+                         LoadTestReport report) {
+        HttpRequest request = requests.build(operation, random, requestIndex);
+        if (request == null) {
+            report.skip(operation);
+            return;
+        }
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            report.record(operation, System.nanoTime() - scheduledAt, response.statusCode() >= 400);
+            if (operation == Operation.CREATE && response.statusCode() == 201) {
+                idPool.add(requests.readId(response.body()));
+            }
+        } catch (IOException e) {
+            report.record(operation, System.nanoTime() - scheduledAt, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Operation[] weightedOperations(Map<Operation, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("Operation mix should contain at least one positive weight");
+        }
+        Operation[] operations = new Operation[total];
+        int index = 0;
+        for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+            for (int i = 0; i < weight.getValue(); i++) {
+                operations[index++] = weight.getKey();
+            }
+        }
+        return operations;
+    }
+}
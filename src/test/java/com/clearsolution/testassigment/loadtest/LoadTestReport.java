@@ -0,0 +1,144 @@
+package com.clearsolution.testassigment.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of a run, measured from the intended start of every request so that a stalled server
+ * is not hidden by the generator waiting on it (coordinated omission).
+ * <p>
+ * A run is written as one {@code <operation>.hgrm} percentile distribution per operation plus a
+ * {@code summary.properties} file that can be passed as the baseline of a later run.
+ */
+class LoadTestReport {
+    static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> skipped = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+
+    LoadTestReport() {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+            skipped.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, long latencyNanos, boolean failed) {
+        recorders.get(operation).recordValue(latencyNanos);
+        if (failed) {
+            errors.get(operation).increment();
+        }
+    }
+
+    void skip(Operation operation) {
+        skipped.get(operation).increment();
+    }
+
+    /**
+     * Takes the recorded values; must be called once all requests have completed.
+     */
+    void finish() {
+        recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+    }
+
+    Path write(Path outputDir, LoadTestSettings settings) throws IOException {
+        Path runDir = outputDir.resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(runDir);
+        Histogram total = new Histogram(3);
+        Properties summary = new Properties();
+        summary.setProperty("settings.rate", Double.toString(settings.getRate()));
+        summary.setProperty("settings.duration", Integer.toString(settings.getDurationSeconds()));
+        summary.setProperty("settings.mix", settings.getMix().toString());
+        summary.setProperty("settings.seed", Long.toString(settings.getSeed()));
+        summary.setProperty("settings.run", settings.getRunId());
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histogram);
+            summarize(summary, operation.getKey(), histogram);
+            summary.setProperty(operation.getKey() + ".errors", Long.toString(errors.get(operation).sum()));
+            summary.setProperty(operation.getKey() + ".skipped", Long.toString(skipped.get(operation).sum()));
+            try (OutputStream out = Files.newOutputStream(runDir.resolve(operation.getKey() + ".hgrm"))) {
+                histogram.outputPercentileDistribution(new PrintStream(out), NANOS_PER_MICRO);
+            }
+        }
+        summarize(summary, "all", total);
+        try (OutputStream out = Files.newOutputStream(runDir.resolve("summary.properties"))) {
+            summary.store(out, "Latencies in microseconds");
+        }
+        return runDir;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-8s %10s %8s", "op", "count", "errors");
+        for (double percentile : PERCENTILES) {
+            out.printf(" %12s", "p" + percentile);
+        }
+        out.printf(" %12s%n", "max");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            out.printf("%-8s %10d %8d", operation.getKey(), histogram.getTotalCount(), errors.get(operation).sum());
+            for (double percentile : PERCENTILES) {
+                out.printf(" %10.1fus", histogram.getValueAtPercentile(percentile) / NANOS_PER_MICRO);
+            }
+            out.printf(" %10.1fus%n", histogram.getMaxValue() / NANOS_PER_MICRO);
+        }
+    }
+
+    static Properties readSummary(Path file) throws IOException {
+        Properties summary = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            summary.load(in);
+        }
+        return summary;
+    }
+
+    /**
+     * Prints every percentile of both runs and the relative change.
+     */
+    static void compare(Properties baseline, Properties current, PrintStream out) {
+        out.printf("%-22s %14s %14s %9s%n", "metric", "baseline", "current", "change");
+        current.stringPropertyNames().stream()
+                .filter(name -> name.endsWith("_us"))
+                .sorted()
+                .forEach(name -> {
+                    double now = Double.parseDouble(current.getProperty(name));
+                    String before = baseline.getProperty(name);
+                    if (before == null) {
+                        out.printf("%-22s %14s %14.1f %9s%n", name, "-", now, "-");
+                        return;
+                    }
+                    double was = Double.parseDouble(before);
+                    double change = was == 0 ? 0 : (now - was) * 100 / was;
+                    out.printf("%-22s %14.1f %14.1f %+8.1f%%%n", name, was, now, change);
+                });
+    }
+
+    private static void summarize(Properties summary, String prefix, Histogram histogram) {
+        summary.setProperty(prefix + ".count", Long.toString(histogram.getTotalCount()));
+        for (double percentile : PERCENTILES) {
+            summary.setProperty(prefix + ".p" + percentile + "_us",
+                    Double.toString(histogram.getValueAtPercentile(percentile) / NANOS_PER_MICRO));
+        }
+        summary.setProperty(prefix + ".max_us", Double.toString(histogram.getMaxValue() / NANOS_PER_MICRO));
+    }
+}
@@ -0,0 +1,54 @@
+package com.clearsolution.testassigment.loadtest;
+
+import com.clearsolution.testassigment.TestassigmentApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+
+/**
+ * Drives every {@code UsersController} endpoint at a fixed rate and reports HdrHistogram latency percentiles.
+ * <p>
+ * Run with {@code ./mvnw -Ploadtest test-compile exec:java -Dexec.args="rate=500 duration=120"}.
+ * See {@link LoadTestSettings} for the available arguments.
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings;
+        try {
+            settings = LoadTestSettings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestSettings.USAGE);
+            System.exit(2);
+            return;
+        }
+        ConfigurableApplicationContext application = null;
+        String baseUrl = settings.getTarget();
+        if (baseUrl == null) {
+            application = new SpringApplicationBuilder(TestassigmentApplication.class)
+                    .profiles("loadtest")
+                    .properties("server.port=0")
+                    .run();
+            baseUrl = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            LoadTestReport report = new LoadGenerator(settings, baseUrl).run();
+            Path runDir = report.write(settings.getOutputDir(), settings);
+            report.print(System.out);
+            System.out.println("Report written to " + runDir.toAbsolutePath());
+            if (settings.getBaseline() != null) {
+                LoadTestReport.compare(LoadTestReport.readSummary(settings.getBaseline()),
+                        LoadTestReport.readSummary(runDir.resolve("summary.properties")), System.out);
+            }
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.clearsolution.testassigment.loadtest;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Settings of a load test run, parsed from {@code key=value} arguments:
+ * <ul>
+ *     <li>{@code rate} - requests per second, sent on a fixed schedule regardless of responses (default 200)</li>
+ *     <li>{@code duration} / {@code warmup} - measured and discarded seconds (default 60 / 10)</li>
+ *     <li>{@code mix} - operation weights, e.g. {@code get=50,range=10,create=10,put=10,patch=15,delete=5}</li>
+ *     <li>{@code users} - users created before the run (default 1000)</li>
+ *     <li>{@code seed} - seed of the request sequence and generated data (default 42)</li>
+ *     <li>{@code run} - tag in the generated emails (default derived from the seed); give each run against the
+ *     same {@code target} its own tag so that created users don't collide with the ones of earlier runs</li>
+ *     <li>{@code target} - base URL of a running instance; when absent the app is started in-process
+ *     with the {@code loadtest} profile and an in-memory database</li>
+ *     <li>{@code out} - report directory (default {@code target/loadtest})</li>
+ *     <li>{@code baseline} - {@code summary.properties} of an earlier run to compare with</li>
+ * </ul>
+ */
+class LoadTestSettings {
+    static final String USAGE = "Arguments: [rate=200] [duration=60] [warmup=10] [users=1000] [seed=42] [run=<tag>]"
+            + " [mix=get=50,range=10,create=10,put=10,patch=15,delete=5] [target=http://host:port]"
+            + " [out=target/loadtest] [baseline=<summary.properties>]";
+
+    private double rate = 200;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;
+    private int seedUsers = 1000;
+    private long seed = 42;
+    private String runId;
+    private String target;
+    private Path outputDir = Path.of("target", "loadtest");
+    private Path baseline;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+    static LoadTestSettings parse(String[] args) {
+        LoadTestSettings settings = new LoadTestSettings();
+        for (Operation operation : Operation.values()) {
+            settings.mix.put(operation, operation.getDefaultWeight());
+        }
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value argument but got '" + arg + "'");
+            }
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            switch (key) {
+                case "rate" -> settings.rate = parseNumber(key, value, Double::parseDouble);
+                case "duration" -> settings.durationSeconds = parseNumber(key, value, Integer::parseInt);
+                case "warmup" -> settings.warmupSeconds = parseNumber(key, value, Integer::parseInt);
+                case "users" -> settings.seedUsers = parseNumber(key, value, Integer::parseInt);
+                case "seed" -> settings.seed = parseNumber(key, value, Long::parseLong);
+                case "run" -> settings.runId = value;
+                case "target" -> settings.target = value;
+                case "out" -> settings.outputDir = Path.of(value);
+                case "baseline" -> settings.baseline = Path.of(value);
+                case "mix" -> settings.parseMix(value);
+                default -> throw new IllegalArgumentException("Unknown setting '" + key + "'");
+            }
+        }
+        if (settings.rate <= 0) {
+            throw new IllegalArgumentException("Rate should be positive");
+        }
+        return settings;
+    }
+
+    private void parseMix(String value) {
+        mix.replaceAll((operation, weight) -> 0);
+        for (String part : value.split(",")) {
+            String[] weight = part.split("=");
+            if (weight.length != 2 || weight[0].isBlank() || weight[1].isBlank()) {
+                throw new IllegalArgumentException("Expected operation=weight in mix but got '" + part + "'");
+            }
+            int parsed = parseNumber("mix weight of " + weight[0].trim(), weight[1].trim(), Integer::parseInt);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Mix weight of " + weight[0].trim() + " should not be negative");
+            }
+            mix.put(Operation.fromKey(weight[0].trim()), parsed);
+        }
+        if (mix.values().stream().allMatch(weight -> weight == 0)) {
+            throw new IllegalArgumentException("Mix should give at least one operation a positive weight");
+        }
+    }
+
+    private static <T> T parseNumber(String key, String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number for " + key + " but got '" + value + "'");
+        }
+    }
+
+    double getRate() {
+        return rate;
+    }
+
+    int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    int getSeedUsers() {
+        return seedUsers;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    String getRunId() {
+        return runId != null ? runId : "s" + Long.toString(seed, 36);
+    }
+
+    String getTarget() {
+        return target;
+    }
+
+    Path getOutputDir() {
+        return outputDir;
+    }
+
+    Path getBaseline() {
+        return baseline;
+    }
+
+    Map<Operation, Integer> getMix() {
+        return mix;
+    }
+}
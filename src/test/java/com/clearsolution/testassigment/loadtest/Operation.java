@@ -0,0 +1,38 @@
+package com.clearsolution.testassigment.loadtest;
+
+/**
+ * Requests the load generator sends to {@code UsersController}, with their default share of the mix.
+ */
+enum Operation {
+    GET_BY_ID("get", 50),
+    RANGE_SEARCH("range", 10),
+    CREATE("create", 10),
+    UPDATE("put", 10),
+    PATCH("patch", 15),
+    DELETE("delete", 5);
+
+    private final String key;
+    private final int defaultWeight;
+
+    Operation(String key, int defaultWeight) {
+        this.key = key;
+        this.defaultWeight = defaultWeight;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "'");
+    }
+}
@@ -0,0 +1,45 @@
+package com.clearsolution.testassigment.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * IDs of the users that currently exist, so reads and writes target real rows.
+ */
+class UserIdPool {
+    private long[] ids = new long[1024];
+    private int size;
+
+    synchronized void add(long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+    }
+
+    /**
+     * @return a random ID, or {@code -1} when the pool is empty
+     */
+    synchronized long pick(SplittableRandom random) {
+        return size == 0 ? -1 : ids[random.nextInt(size)];
+    }
+
+    /**
+     * Removes a random ID so that no other request can pick it while it is being deleted.
+     *
+     * @return the removed ID, or {@code -1} when the pool is empty
+     */
+    synchronized long take(SplittableRandom random) {
+        if (size == 0) {
+            return -1;
+        }
+        int index = random.nextInt(size);
+        long id = ids[index];
+        ids[index] = ids[--size];
+        return id;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,122 @@
+package com.clearsolution.testassigment.loadtest;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the HTTP requests of every {@link Operation} with generated data that satisfies the
+ * {@code UserDTO} constraints: unique emails, adult birth dates and the '+' and 12 digits phone pattern.
+ */
+class UserRequests {
+    private static final String[] FIRST_NAMES = {"Roman", "Olena", "Taras", "Iryna", "Andrii", "Maria", "Petro", "Sofia"};
+    private static final String[] LAST_NAMES = {"Kushnir", "Shevchenko", "Bondarenko", "Koval", "Tkachenko", "Melnyk"};
+    private static final String[] STREETS = {"Khreshchatyk", "Shevchenka", "Franka", "Lesi Ukrainky", "Sahaidachnoho"};
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final UserIdPool idPool;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String runId;
+
+    UserRequests(String baseUrl, UserIdPool idPool, String runId) {
+        this.baseUrl = baseUrl;
+        this.idPool = idPool;
+        this.runId = runId;
+        objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+    }
+
+    /**
+     * @param requestIndex position of the request in the seeded schedule, makes the emails of created users
+     *                     unique and independent of the order the worker threads run in
+     * @return the request, or {@code null} when the operation needs an existing user and there is none
+     */
+    HttpRequest build(Operation operation, SplittableRandom random, long requestIndex) {
+        return switch (operation) {
+            case GET_BY_ID -> {
+                long id = idPool.pick(random);
+                yield id < 0 ? null : request("/users/" + id).GET().build();
+            }
+            case RANGE_SEARCH -> {
+                LocalDate from = LocalDate.of(1940 + random.nextInt(60), 1 + random.nextInt(12), 1);
+                LocalDate to = from.plusYears(1 + random.nextInt(10));
+                yield request("/users/birthdate?from=" + from + "&to=" + to).GET().build();
+            }
+            case CREATE -> json(request("/users"), "POST", newUser(0L, random, requestIndex));
+            case UPDATE -> {
+                long id = idPool.pick(random);
+                yield id < 0 ? null : json(request("/users/" + id), "PUT", newUser(id, random, requestIndex));
+            }
+            case PATCH -> {
+                long id = idPool.pick(random);
+                Map<String, Object> fields = random.nextBoolean()
+                        ? Map.of("firstName", pick(FIRST_NAMES, random))
+                        : Map.of("address", address(random));
+                yield id < 0 ? null : json(request("/users/" + id), "PATCH", fields);
+            }
+            case DELETE -> {
+                long id = idPool.take(random);
+                yield id < 0 ? null : request("/users/" + id).DELETE().build();
+            }
+        };
+    }
+
+    HttpRequest create(SplittableRandom random, long requestIndex) {
+        return build(Operation.CREATE, random, requestIndex);
+    }
+
+    long readId(String body) throws JsonProcessingException {
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private UserDTO newUser(Long id, SplittableRandom random, long requestIndex) {
+        String firstName = pick(FIRST_NAMES, random);
+        String lastName = pick(LAST_NAMES, random);
+        LocalDate birthDate = LocalDate.now()
+                .minusYears(18 + random.nextInt(62))
+                .minusDays(1 + random.nextInt(364));
+        return new UserDTO.Builder()
+                .id(id)
+                .email((firstName + "." + lastName + "." + runId + "." + requestIndex + "@loadtest.com").toLowerCase())
+                .firstName(firstName)
+                .lastName(lastName)
+                .birthDate(Date.from(birthDate.atStartOfDay(ZoneId.systemDefault()).toInstant()))
+                .address(address(random))
+                .phoneNumber(String.format("+380%09d", random.nextInt(1_000_000_000)))
+                .build();
+    }
+
+    private String address(SplittableRandom random) {
+        return pick(STREETS, random) + " st. " + (1 + random.nextInt(200)) + ", Kyiv";
+    }
+
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .header("Accept", "application/json");
+    }
+
+    private HttpRequest json(HttpRequest.Builder builder, String method, Object body) {
+        try {
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize request body", e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.clearsolution.testassigment.repositories;
+
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the projection queries on H2 and checks the SQL they send: only the requested columns are selected and
+ * range results are ordered by birth date, then ID.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.clearsolution.testassigment.repositories.UsersProjectionRepositoryTest$RecordingStatementInspector",
+        "spring.sql.init.mode=never"
+})
+class UsersProjectionRepositoryTest {
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Long olderUserId;
+    private Long youngerUserId;
+    private Long sameBirthDateUserId;
+
+    @BeforeEach
+    void saveUsers() {
+        youngerUserId = entityManager.persist(user("younger@gmail.com", new Date(95, Calendar.MAY, 1))).getId();
+        olderUserId = entityManager.persist(user("older@gmail.com", new Date(85, Calendar.JANUARY, 5))).getId();
+        sameBirthDateUserId = entityManager.persist(user("same@gmail.com", new Date(95, Calendar.MAY, 1))).getId();
+        entityManager.persist(user("outside@gmail.com", new Date(70, Calendar.MARCH, 15)));
+        entityManager.flush();
+        entityManager.clear();
+        RecordingStatementInspector.statements.clear();
+    }
+
+    @Test
+    void findFieldsByIdShouldSelectOnlyRequestedColumns() {
+        UserEntity user = usersRepository.findFieldsById(olderUserId, List.of("email", "birthDate")).orElseThrow();
+
+        assertEquals("older@gmail.com", user.getEmail());
+        assertEquals(new Date(85, Calendar.JANUARY, 5), new Date(user.getBirthDate().getTime()));
+        assertNull(user.getId());
+        assertNull(user.getFirstName());
+        assertThat(selectedColumns()).contains("email", "birth_date")
+                .doesNotContain("first_name", "last_name", "address", "phone_number", "updated_at");
+    }
+
+    @Test
+    void findFieldsByIdShouldReturnEmptyForUnknownUser() {
+        assertTrue(usersRepository.findFieldsById(olderUserId + 100, List.of("email")).isEmpty());
+    }
+
+    @Test
+    void findFieldsByBirthDateBetweenShouldOrderByBirthDateThenId() {
+        List<UserEntity> users = usersRepository.findFieldsByBirthDateBetween(
+                new Date(80, Calendar.JANUARY, 1), new Date(99, Calendar.DECEMBER, 31), List.of("id", "email"));
+
+        assertThat(users).extracting(UserEntity::getId)
+                .containsExactly(olderUserId, Math.min(youngerUserId, sameBirthDateUserId), Math.max(youngerUserId, sameBirthDateUserId));
+        assertThat(users).extracting(UserEntity::getBirthDate).containsOnlyNulls();
+        assertThat(selectedColumns()).contains("id", "email").doesNotContain("birth_date", "first_name", "address");
+        assertThat(lastStatement()).containsPattern("order by \\w+\\.birth_date,\\s*\\w+\\.id");
+    }
+
+    private static UserEntity user(String email, Date birthDate) {
+        UserEntity user = new UserEntity();
+        user.setEmail(email);
+        user.setFirstName("Roman");
+        user.setLastName("Kushnir");
+        user.setBirthDate(birthDate);
+        user.setAddress("Some address");
+        user.setPhoneNumber("+380935288886");
+        return user;
+    }
+
+    private static String lastStatement() {
+        List<String> statements = RecordingStatementInspector.statements;
+        assertFalse(statements.isEmpty());
+        return statements.get(statements.size() - 1).toLowerCase();
+    }
+
+    private static String selectedColumns() {
+        String statement = lastStatement();
+        return statement.substring(statement.indexOf("select") + "select".length(), statement.indexOf(" from "));
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.clearsolution.testassigment.repositories.sharding;
+
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import com.clearsolution.testassigment.repositories.UsersStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedUsersRepositoryTest {
+    private static final int SHARDS = 3;
+
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private ShardedUsersRepository shardedRepository;
+    private UsersStore usersRepository;
+
+    @BeforeEach
+    void setup() {
+        String run = UUID.randomUUID().toString();
+        for (int i = 0; i < SHARDS; i++) {
+            dataSources.add(new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard" + i + "-" + run + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        }
+        shardedRepository = new ShardedUsersRepository(dataSources);
+        usersRepository = shardedRepository;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shardedRepository.close();
+    }
+
+    private UserEntity newUser(int number, int birthYear) {
+        UserEntity user = new UserEntity();
+        user.setId(0L);
+        user.setEmail("user" + number + "@gmail.com");
+        user.setFirstName("Roman");
+        user.setLastName("Kushnir");
+        user.setBirthDate(new Date(birthYear - 1900, Calendar.JANUARY, 1 + number % 28));
+        user.setAddress("Some address");
+        user.setPhoneNumber("+380935288886");
+        return user;
+    }
+
+    @Test
+    void saveShouldGenerateIdsUniqueAcrossShards() {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(usersRepository.save(newUser(i, 1980 + i)).getId());
+        }
+        assertEquals(30, ids.size());
+        assertThat(ids.stream().map(id -> id % SHARDS).collect(Collectors.toSet())).hasSizeGreaterThan(1);
+        assertEquals(30, shardedRepository.count());
+        for (Long id : ids) {
+            assertTrue(usersRepository.findById(id).isPresent());
+            assertTrue(usersRepository.existsById(id));
+        }
+    }
+
+    @Test
+    void changedShardLayoutShouldBeRefused() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> new ShardedUsersRepository(dataSources.subList(0, SHARDS - 1)));
+        assertThat(exception.getMessage()).contains("was created as shard 0 of " + SHARDS);
+        assertThrows(IllegalStateException.class,
+                () -> new ShardedUsersRepository(List.of(dataSources.get(1), dataSources.get(0), dataSources.get(2))));
+    }
+
+    @Test
+    void failingShardShouldThrowItsOwnException() {
+        usersRepository.save(newUser(1, 1985));
+        new JdbcTemplate(dataSources.get(SHARDS - 1)).execute("DROP TABLE users");
+
+        assertThrows(BadSqlGrammarException.class, () -> usersRepository.findUserEntityByBirthDateBetween(
+                new Date(80, Calendar.JANUARY, 1), new Date(90, Calendar.JANUARY, 1)));
+    }
+
+    @Test
+    void findUserEntityByEmailShouldFollowEmailChanges() {
+        UserEntity user = usersRepository.save(newUser(1, 1985));
+        assertEquals(user.getId(), usersRepository.findUserEntityByEmail("user1@gmail.com").orElseThrow().getId());
+
+        for (int i = 0; i < 10; i++) {
+            user.setEmail("changed" + i + "@gmail.com");
+            usersRepository.save(user);
+        }
+
+        assertTrue(usersRepository.findUserEntityByEmail("user1@gmail.com").isEmpty());
+        assertTrue(usersRepository.findUserEntityByEmail("changed8@gmail.com").isEmpty());
+        assertEquals(user.getId(), usersRepository.findUserEntityByEmail("changed9@gmail.com").orElseThrow().getId());
+        assertEquals("changed9@gmail.com", usersRepository.findById(user.getId()).orElseThrow().getEmail());
+    }
+
+    @Test
+    void saveShouldStoreEmailInCanonicalForm() {
+        UserEntity user = newUser(1, 1985);
+        user.setEmail("  User1@GMail.com");
+        usersRepository.save(user);
+
+        assertEquals("user1@gmail.com", usersRepository.findUserEntityByEmail("user1@gmail.com").orElseThrow().getEmail());
+    }
+
+    @Test
+    void findUserEntityByBirthDateBetweenShouldMergeShardsInBirthDateOrder() {
+        for (int i = 0; i < 30; i++) {
+            usersRepository.save(newUser(i, 2000 - i));
+        }
+        List<UserEntity> result = usersRepository.findUserEntityByBirthDateBetween(
+                new Date(80, Calendar.JANUARY, 1), new Date(89, Calendar.DECEMBER, 31));
+
+        assertEquals(10, result.size());
+        for (int i = 1; i < result.size(); i++) {
+            assertFalse(result.get(i).getBirthDate().before(result.get(i - 1).getBirthDate()));
+        }
+    }
+
+    @Test
+    void findBirthdaysAcrossYearEndShouldOrderDecemberBeforeJanuary() {
+        int[][] birthdays = {{Calendar.JANUARY, 3}, {Calendar.DECEMBER, 30}, {Calendar.JUNE, 1},
+                {Calendar.DECEMBER, 28}, {Calendar.JANUARY, 1}, {Calendar.JANUARY, 10}};
+        for (int i = 0; i < birthdays.length; i++) {
+            UserEntity user = newUser(i, 1990);
+            user.setBirthDate(new Date(90 - i, birthdays[i][0], birthdays[i][1]));
+            usersRepository.save(user);
+        }
+        List<Short> result = usersRepository.findBirthdaysAcrossYearEnd((short) 1225, (short) 105).stream()
+                .map(UserEntity::getBirthdayMmdd)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of((short) 1228, (short) 1230, (short) 101, (short) 103), result);
+    }
+
+    @Test
+    void findFieldsByBirthDateBetweenShouldReadSelectedFieldsInBirthDateOrder() {
+        for (int i = 0; i < 30; i++) {
+            usersRepository.save(newUser(i, 2000 - i));
+        }
+        List<UserEntity> result = usersRepository.findFieldsByBirthDateBetween(
+                new Date(80, Calendar.JANUARY, 1), new Date(89, Calendar.DECEMBER, 31), List.of("email"));
+
+        assertEquals(10, result.size());
+        assertEquals(List.of("user20@gmail.com", "user19@gmail.com"),
+                result.subList(0, 2).stream().map(UserEntity::getEmail).collect(Collectors.toList()));
+        assertNull(result.get(0).getId());
+        assertNull(result.get(0).getBirthDate());
+        assertNull(result.get(0).getFirstName());
+    }
+
+    @Test
+    void findAllByIdShouldGatherUsersFromAllShards() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            ids.add(usersRepository.save(newUser(i, 1990)).getId());
+        }
+        List<UserEntity> result = usersRepository.findAllById(List.of(ids.get(0), ids.get(5), ids.get(11), 999_999L));
+        assertThat(result).extracting(UserEntity::getId).containsExactlyInAnyOrder(ids.get(0), ids.get(5), ids.get(11));
+    }
+
+    @Test
+    void deleteByIdShouldRemoveUserAndEmail() {
+        UserEntity user = usersRepository.save(newUser(1, 1985));
+        usersRepository.deleteById(user.getId());
+        assertFalse(usersRepository.existsById(user.getId()));
+        assertTrue(usersRepository.findUserEntityByEmail("user1@gmail.com").isEmpty());
+    }
+
+    @Test
+    void updateToTakenEmailShouldFailAndLeaveUserAndEmailsUnchanged() {
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(usersRepository.save(newUser(i, 1990)));
+        }
+        // Neighbouring users cover both an email entry on the user's shard and one on another shard
+        for (int i = 0; i < users.size(); i++) {
+            UserEntity user = usersRepository.findById(users.get(i).getId()).orElseThrow();
+            String takenEmail = users.get((i + 1) % users.size()).getEmail();
+            user.setEmail(takenEmail);
+            assertThrows(DataIntegrityViolationException.class, () -> usersRepository.save(user));
+        }
+        for (UserEntity user : users) {
+            UserEntity stored = usersRepository.findById(user.getId()).orElseThrow();
+            assertEquals(user.getEmail(), stored.getEmail());
+            assertEquals(user.getId(), usersRepository.findUserEntityByEmail(user.getEmail()).orElseThrow().getId());
+        }
+    }
+}
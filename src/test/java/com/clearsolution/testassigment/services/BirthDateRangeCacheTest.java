@@ -0,0 +1,122 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthDateRangeCacheTest {
+    private final BirthDateRangeCache rangeCache = new BirthDateRangeCache(100, Duration.ofMinutes(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Date eighties = new Date(80, Calendar.JANUARY, 1);
+    private final Date endOfEighties = new Date(89, Calendar.DECEMBER, 31);
+    private final Date nineties = new Date(90, Calendar.JANUARY, 1);
+    private final Date endOfNineties = new Date(99, Calendar.DECEMBER, 31);
+
+    @Test
+    void repeatedRangeShouldBeServedFromCache() {
+        rangeCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        rangeCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void writeShouldOnlyEvictRangesContainingNewBirthDate() {
+        rangeCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        rangeCache.get(nineties, endOfNineties, loader(user(2L, 95)));
+
+        rangeCache.onUserChanged(3L, new Date(92, Calendar.MAY, 1));
+
+        rangeCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        assertEquals(2, loads.get());
+        rangeCache.get(nineties, endOfNineties, loader(user(2L, 95)));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void writeShouldEvictRangesContainingOldBirthDate() {
+        rangeCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        rangeCache.get(new Date(84, Calendar.JANUARY, 1), new Date(86, Calendar.JANUARY, 1), loader(user(1L, 85)));
+        rangeCache.get(nineties, endOfNineties, loader(user(2L, 95)));
+
+        rangeCache.onUserChanged(1L, null);
+
+        rangeCache.get(eighties, endOfEighties, loader());
+        rangeCache.get(new Date(84, Calendar.JANUARY, 1), new Date(86, Calendar.JANUARY, 1), loader());
+        rangeCache.get(nineties, endOfNineties, loader(user(2L, 95)));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void resultLoadedDuringWriteShouldNotBeCached() {
+        rangeCache.get(eighties, endOfEighties, () -> {
+            loads.incrementAndGet();
+            rangeCache.onUserChanged(1L, new Date(85, Calendar.JANUARY, 1));
+            return List.of();
+        });
+        rangeCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void unrelatedWriteDuringLoadShouldNotKeepResultOutOfCache() {
+        rangeCache.get(eighties, endOfEighties, () -> {
+            loads.incrementAndGet();
+            rangeCache.onUserChanged(2L, new Date(95, Calendar.MAY, 1));
+            return List.of(user(1L, 85));
+        });
+        rangeCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void userMovedOutOfRangeDuringLoadShouldNotBeCached() {
+        rangeCache.get(eighties, endOfEighties, () -> {
+            loads.incrementAndGet();
+            // Not cached anywhere yet, so only the loaded result tells that the user was in the range
+            rangeCache.onUserChanged(1L, new Date(95, Calendar.MAY, 1));
+            return List.of(user(1L, 85));
+        });
+        rangeCache.get(eighties, endOfEighties, loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void leastRecentlyUsedRangesShouldBeEvictedOverRowLimit() {
+        BirthDateRangeCache smallCache = new BirthDateRangeCache(2, Duration.ofMinutes(1));
+        smallCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        smallCache.get(nineties, endOfNineties, loader(user(2L, 95)));
+        smallCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        smallCache.get(new Date(70, Calendar.JANUARY, 1), new Date(79, Calendar.DECEMBER, 31), loader(user(3L, 75)));
+
+        smallCache.get(eighties, endOfEighties, loader(user(1L, 85)));
+        assertEquals(3, loads.get());
+        smallCache.get(nineties, endOfNineties, loader(user(2L, 95)));
+        assertEquals(4, loads.get());
+    }
+
+    private Supplier<List<UserDTO>> loader(UserDTO... users) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(users);
+        };
+    }
+
+    private static UserDTO user(Long id, int birthYear) {
+        return new UserDTO.Builder()
+                .id(id)
+                .email("user" + id + "@gmail.com")
+                .firstName("Roman")
+                .lastName("Kushnir")
+                .birthDate(new Date(birthYear, Calendar.JUNE, 1))
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.exceptions.ValidationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+    private final IdempotencyStore idempotencyStore = new IdempotencyStore(new ObjectMapper(), 100, Duration.ofMinutes(1), 4);
+
+    @Test
+    void replayShouldReturnOriginalResultWithoutExecuting() {
+        AtomicInteger executions = new AtomicInteger();
+        String first = idempotencyStore.execute("key", "POST /users", "body", () -> "result-" + executions.incrementAndGet());
+        String replay = idempotencyStore.execute("key", "POST /users", "body", () -> "result-" + executions.incrementAndGet());
+        assertEquals("result-1", first);
+        assertEquals("result-1", replay);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void sameKeyWithDifferentRequestShouldExecuteAgain() {
+        AtomicInteger executions = new AtomicInteger();
+        idempotencyStore.execute("key", "POST /users", "body", executions::incrementAndGet);
+        idempotencyStore.execute("key", "POST /users", "other body", executions::incrementAndGet);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void bodiesDifferingInFieldOrderShouldShareTheKey() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("email", "romakush85@gmail.com");
+        fields.put("firstName", "Roma");
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("firstName", "Roma");
+        reordered.put("email", "romakush85@gmail.com");
+        AtomicInteger executions = new AtomicInteger();
+        idempotencyStore.execute("key", "PATCH /users/1", fields, executions::incrementAndGet);
+        idempotencyStore.execute("key", "PATCH /users/1", reordered, executions::incrementAndGet);
+        idempotencyStore.execute("key", "PATCH /users/2", reordered, executions::incrementAndGet);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void failedExecutionShouldNotBeRemembered() {
+        assertThrows(ValidationException.class, () -> idempotencyStore.execute("key", "POST /users", "body", () -> {
+            throw new ValidationException("failed");
+        }));
+        assertEquals("retried", idempotencyStore.execute("key", "POST /users", "body", () -> "retried"));
+    }
+
+    @Test
+    void expiredEntryShouldExecuteAgain() throws InterruptedException {
+        IdempotencyStore shortLivedStore = new IdempotencyStore(new ObjectMapper(), 100, Duration.ofMillis(1), 4);
+        AtomicInteger executions = new AtomicInteger();
+        shortLivedStore.execute("key", "POST /users", "body", executions::incrementAndGet);
+        Thread.sleep(5);
+        shortLivedStore.execute("key", "POST /users", "body", executions::incrementAndGet);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void concurrentDuplicatesShouldWaitForFirstExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(executor.submit(() -> idempotencyStore.execute("key", "POST /users", "body", () -> {
+                started.countDown();
+                awaitQuietly(release);
+                return executions.incrementAndGet();
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> idempotencyStore.execute("key", "POST /users", "body", executions::incrementAndGet)));
+            }
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void errorShouldReleaseWaitingDuplicatesAndNotBeRemembered() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(() -> idempotencyStore.execute("key", "POST /users", "body", () -> {
+                started.countDown();
+                awaitQuietly(release);
+                throw new AssertionError("failed");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> duplicate = executor.submit(() -> idempotencyStore.execute("key", "POST /users", "body", () -> "duplicate"));
+            release.countDown();
+            assertInstanceOf(AssertionError.class, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+            try {
+                assertEquals("duplicate", duplicate.get(5, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertInstanceOf(AssertionError.class, e.getCause());
+            }
+            assertEquals("retried", idempotencyStore.execute("key", "POST /users", "body", () -> "retried"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runningExecutionShouldNotBeEvicted() throws Exception {
+        IdempotencyStore smallStore = new IdempotencyStore(new ObjectMapper(), 1, Duration.ofMinutes(1), 1);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> smallStore.execute("key", "POST /users", "body", () -> {
+                started.countDown();
+                awaitQuietly(release);
+                return executions.incrementAndGet();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            smallStore.execute("other", "POST /users", "body", () -> "other");
+            smallStore.execute("another", "POST /users", "body", () -> "another");
+            Future<Integer> duplicate = executor.submit(() -> smallStore.execute("key", "POST /users", "body", executions::incrementAndGet));
+            release.countDown();
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
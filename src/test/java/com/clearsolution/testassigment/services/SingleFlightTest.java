@@ -0,0 +1,106 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.exceptions.UserNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private final Counter coalescedCalls = new SimpleMeterRegistry().counter("coalesced");
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>(coalescedCalls);
+
+    @Test
+    void concurrentCallsForSameKeyShouldShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                loadStarted.countDown();
+                awaitQuietly(releaseLoad);
+                return "user-" + loads.incrementAndGet();
+            })));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> singleFlight.execute(1L, () -> "user-" + loads.incrementAndGet())));
+            }
+            while (coalescedCalls.count() < 7) {
+                Thread.sleep(1);
+            }
+            releaseLoad.countDown();
+            for (Future<String> result : results) {
+                assertEquals("user-1", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(7, coalescedCalls.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void completedLoadShouldNotBeReused() {
+        AtomicInteger loads = new AtomicInteger();
+        singleFlight.execute(1L, () -> "user-" + loads.incrementAndGet());
+        assertEquals("user-2", singleFlight.execute(1L, () -> "user-" + loads.incrementAndGet()));
+        assertEquals(0, coalescedCalls.count());
+    }
+
+    @Test
+    void failedLoadShouldThrowAndAllowReload() {
+        assertThrows(UserNotFoundException.class, () -> singleFlight.execute(1L, () -> {
+            throw new UserNotFoundException("User is not found by ID 1");
+        }));
+        assertEquals("user", singleFlight.execute(1L, () -> "user"));
+    }
+
+    @Test
+    void errorShouldReleaseCoalescedCallers() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> failing = executor.submit(() -> singleFlight.execute(1L, () -> {
+                loadStarted.countDown();
+                awaitQuietly(releaseLoad);
+                throw new OutOfMemoryError("Java heap space");
+            }));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            Future<String> waiting = executor.submit(() -> singleFlight.execute(1L, () -> "user"));
+            while (coalescedCalls.count() < 1) {
+                Thread.sleep(1);
+            }
+            releaseLoad.countDown();
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, failure.getCause());
+            ExecutionException coalesced = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, coalesced.getCause());
+            assertEquals("user", singleFlight.execute(1L, () -> "user"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.clearsolution.testassigment.services;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static com.clearsolution.testassigment.services.UserResponseCache.Representation.GZIP_JSON;
+import static com.clearsolution.testassigment.services.UserResponseCache.Representation.JSON;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserResponseCacheTest {
+    private final UserResponseCache responseCache =
+            new UserResponseCache(new ObjectMapper(), DataSize.ofKilobytes(64), Duration.ofMinutes(1));
+
+    @Test
+    void repeatedReadShouldReturnCachedBody() {
+        AtomicInteger loads = new AtomicInteger();
+        byte[] first = responseCache.get(1L, JSON, () -> user("v" + loads.incrementAndGet()));
+        byte[] second = responseCache.get(1L, JSON, () -> user("v" + loads.incrementAndGet()));
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void gzipRepresentationShouldDecodeToJsonBody() throws IOException {
+        byte[] json = responseCache.get(1L, JSON, () -> user("v1"));
+        byte[] gzip = responseCache.get(1L, GZIP_JSON, () -> user("v1"));
+        try (GZIPInputStream decoded = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(json, decoded.readAllBytes());
+        }
+    }
+
+    @Test
+    void invalidateShouldDropEveryRepresentation() {
+        responseCache.get(1L, JSON, () -> user("v1"));
+        responseCache.get(1L, GZIP_JSON, () -> user("v1"));
+        responseCache.invalidate(1L);
+        AtomicInteger loads = new AtomicInteger();
+        responseCache.get(1L, JSON, () -> user("v" + loads.incrementAndGet()));
+        responseCache.get(1L, GZIP_JSON, () -> user("v" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void bodyLoadedBeforeInvalidationShouldNotBeCached() {
+        byte[] stale = responseCache.get(1L, JSON, () -> {
+            UserDTO loaded = user("stale");
+            responseCache.invalidate(1L);
+            return loaded;
+        });
+        byte[] fresh = responseCache.get(1L, JSON, () -> user("fresh"));
+        assertTrue(new String(stale, StandardCharsets.UTF_8).contains("stale"));
+        assertTrue(new String(fresh, StandardCharsets.UTF_8).contains("fresh"));
+    }
+
+    private static UserDTO user(String firstName) {
+        return new UserDTO.Builder()
+                .id(1L)
+                .email("romakush@gmail.com")
+                .firstName(firstName)
+                .lastName("Kushnir")
+                .build();
+    }
+}
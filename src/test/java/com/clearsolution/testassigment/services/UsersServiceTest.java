@@ -6,8 +6,14 @@ import com.clearsolution.testassigment.exceptions.GlobalExceptionsHandler;
 import com.clearsolution.testassigment.exceptions.UserNotFoundException;
 import com.clearsolution.testassigment.exceptions.ValidationException;
 import com.clearsolution.testassigment.exceptions.WrongRequestException;
+import com.clearsolution.testassigment.models.DTOs.UserLookupDTO;
 import com.clearsolution.testassigment.models.entities.UserEntity;
+import com.clearsolution.testassigment.monitoring.UsersServiceEvent;
 import com.clearsolution.testassigment.repositories.UsersRepository;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -17,12 +23,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -43,7 +55,17 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.Year;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -58,6 +80,18 @@ class UsersServiceTest {
     @Autowired
     private UsersService usersService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private BirthDateRangeCache rangeCache;
+
+    @BeforeEach
+    void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        rangeCache.clear();
+    }
+
     UserDTO newValidUser = new UserDTO.Builder()
             .id(0l).email("romakush@gmail.com").firstName("Roman").lastName("Kushnir")
             .birthDate(new Date(85, Calendar.JANUARY, 5)).address("Some address")
@@ -91,6 +125,43 @@ class UsersServiceTest {
 
     }
 
+    @Test
+    void getUserByIdShouldNotHandOutTheCachedInstance() {
+        when(usersRepository.findById(1L)).thenReturn(Optional.of(this.userMapper.map(createdUser, UserEntity.class)));
+        UserDTO first = usersService.getUserById(1L);
+        first.setEmail("changed@gmail.com");
+        first.getBirthDate().setTime(0);
+        assertEquals(createdUser, usersService.getUserById(1L));
+        verify(usersRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getUserByIdLoadedBeforeAnUpdateCommitsShouldNotBeCached() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch updateCommitted = new CountDownLatch(1);
+        when(usersRepository.findById(1L)).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            assertTrue(updateCommitted.await(5, TimeUnit.SECONDS));
+            return Optional.of(userMapper.map(createdUser, UserEntity.class));
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<UserDTO> staleRead = executor.submit(() -> usersService.getUserById(1L));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+            when(usersRepository.existsById(1L)).thenReturn(true);
+            when(usersRepository.save(any(UserEntity.class))).thenReturn(userMapper.map(updatedUser, UserEntity.class));
+            usersService.updateUser(updatedUser);
+            updateCommitted.countDown();
+            assertEquals(createdUser, staleRead.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        doReturn(Optional.of(userMapper.map(updatedUser, UserEntity.class))).when(usersRepository).findById(1L);
+        assertEquals(updatedUser, usersService.getUserById(1L));
+    }
+
     @Test
     public void getUserByIdShouldThrowNotFoundException() {
         Long userId = 1L;
@@ -118,6 +189,16 @@ class UsersServiceTest {
         assertEquals("User with email " + createdUser.getEmail() + " is already created", exception.getMessage());
     }
 
+    @Test
+    void createUserShouldLookUpEmailInCanonicalForm() {
+        UserDTO mixedCaseUser = new UserDTO.Builder()
+                .id(0l).email(" RomaKush@Gmail.com ").firstName("Roman").lastName("Kushnir")
+                .birthDate(new Date(85, Calendar.JANUARY, 5)).address("Some address")
+                .phoneNumber("+380935288886").build();
+        when(usersRepository.findUserEntityByEmail("romakush@gmail.com")).thenReturn(Optional.of(this.userMapper.map(createdUser, UserEntity.class)));
+        assertThrows(ValidationException.class, () -> usersService.createUser(mixedCaseUser));
+    }
+
     @Test
     void createUserWithUnderageUserShouldThrowValidationException() {
         ValidationException exception = assertThrows(ValidationException.class, () -> {
@@ -198,6 +279,97 @@ class UsersServiceTest {
         assertEquals(users.size(), result.size());
     }
 
+    @Test
+    void getUsersByBirthdayRangeAcrossYearEndShouldQueryWrappedWindow() {
+        when(usersRepository.findBirthdaysAcrossYearEnd((short) 1225, (short) 105))
+                .thenReturn(List.of(userMapper.map(createdUser, UserEntity.class)));
+        List<UserDTO> result = usersService.getUsersByBirthdayRange(
+                MonthDay.of(Month.DECEMBER, 25), MonthDay.of(Month.JANUARY, 5), Year.of(2025));
+        assertEquals(List.of(createdUser), result);
+        verify(usersRepository, never()).findBirthdaysBetween(any(), any());
+    }
+
+    @Test
+    void getUsersByBirthdayRangeEndingFebruary28ShouldIncludeLeapDayInNonLeapYear() {
+        usersService.getUsersByBirthdayRange(MonthDay.of(Month.FEBRUARY, 20), MonthDay.of(Month.FEBRUARY, 28), Year.of(2025));
+        usersService.getUsersByBirthdayRange(MonthDay.of(Month.FEBRUARY, 20), MonthDay.of(Month.FEBRUARY, 28), Year.of(2024));
+        verify(usersRepository).findBirthdaysBetween((short) 220, (short) 229);
+        verify(usersRepository).findBirthdaysBetween((short) 220, (short) 228);
+    }
+
+    @Test
+    void getUsersByBirthdayRangeWithLeapDayInNonLeapYearShouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> usersService.getUsersByBirthdayRange(
+                MonthDay.of(Month.FEBRUARY, 29), MonthDay.of(Month.MARCH, 5), Year.of(2025)));
+    }
+
+    @Test
+    void getUserFieldsByIdShouldQuerySelectedFieldsOnly() {
+        UserEntity projected = new UserEntity();
+        projected.setId(1L);
+        projected.setEmail("romakush@gmail.com");
+        when(usersRepository.findFieldsById(1L, List.of("id", "email"))).thenReturn(Optional.of(projected));
+        UserDTO result = usersService.getUserFieldsById(1L, UserFieldSet.parse("email, id"));
+        assertEquals("romakush@gmail.com", result.getEmail());
+        assertNull(result.getAddress());
+        verify(usersRepository, never()).findById(any());
+    }
+
+    @Test
+    void getUsersByIdsShouldReturnUsersInRequestOrderWithNotFoundMarkers() {
+        UserEntity secondUser = userMapper.map(updatedUser, UserEntity.class);
+        secondUser.setId(2L);
+        when(usersRepository.findAllById(List.of(2L, 3L, 1L)))
+                .thenReturn(List.of(userMapper.map(createdUser, UserEntity.class), secondUser));
+        List<UserLookupDTO> result = usersService.getUsersByIds(List.of(2L, 3L, 1L));
+        assertEquals(3, result.size());
+        assertEquals(Long.valueOf(2L), result.get(0).getUser().getId());
+        assertFalse(result.get(1).isFound());
+        assertNull(result.get(1).getUser());
+        assertEquals(createdUser, result.get(2).getUser());
+    }
+
+    @Test
+    void getUsersByIdsShouldServeCachedUsersWithoutQuery() {
+        when(usersRepository.findById(1L)).thenReturn(Optional.of(userMapper.map(createdUser, UserEntity.class)));
+        usersService.getUserById(1L);
+        List<UserLookupDTO> result = usersService.getUsersByIds(List.of(1L));
+        assertEquals(createdUser, result.get(0).getUser());
+        verify(usersRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getUsersByIdsWithTooManyIdsShouldThrowValidationException() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 501; id++) {
+            ids.add(id);
+        }
+        assertThrows(ValidationException.class, () -> usersService.getUsersByIds(ids));
+    }
+
+    @Test
+    void serviceCallsShouldEmitJfrEvents() throws Exception {
+        when(usersRepository.findById(1L)).thenReturn(Optional.of(userMapper.map(createdUser, UserEntity.class)));
+        Path dump = Files.createTempFile("users-api", ".jfr");
+        try {
+            try (Recording recording = new Recording(Configuration.create(Path.of("jfr", "users-api.jfc")))) {
+                recording.start();
+                usersService.getUserById(1L);
+                recording.stop();
+                recording.dump(dump);
+            }
+            RecordedEvent event = RecordingFile.readAllEvents(dump).stream()
+                    .filter(recorded -> recorded.getEventType().getName().equals(UsersServiceEvent.NAME))
+                    .filter(recorded -> "getUserById".equals(recorded.getString("operation")))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(1L, event.getLong("userId"));
+            assertEquals(1, event.getInt("rows"));
+            assertTrue(event.getLong("databaseTime") > 0);
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
 
     @Test
     void deleteUserShouldThrowExceptionWhenUserNotFound() {
@@ -0,0 +1,77 @@
+package com.clearsolution.testassigment.services.snapshot;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import com.clearsolution.testassigment.repositories.UsersStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.modelmapper.ModelMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class UserSnapshotStoreTest {
+    @TempDir
+    Path directory;
+
+    private UserSnapshotStore store;
+
+    @BeforeEach
+    void openSnapshot() throws Exception {
+        Path file = directory.resolve("users.snapshot");
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        user.setEmail("user1@gmail.com");
+        user.setFirstName("Roman");
+        user.setLastName("Kushnir");
+        user.setBirthDate(new Date(85, Calendar.JANUARY, 5));
+        user.setAddress("Some address");
+        try (UserSnapshotWriter writer = new UserSnapshotWriter(file, Instant.now())) {
+            writer.append(user);
+            writer.finish();
+        }
+        store = new UserSnapshotStore(mock(UsersStore.class), new ModelMapper());
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "path", file);
+        store.open();
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void savedUserShouldBeServedOnlyAfterCommit() {
+        UserDTO changed = store.findById(1L).orElseThrow();
+        changed.setAddress("Updated address");
+        store.onSaved(changed);
+        changed.setAddress("Changed by the caller");
+
+        assertEquals("Some address", store.findById(1L).orElseThrow().getAddress());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals("Updated address", store.findById(1L).orElseThrow().getAddress());
+    }
+
+    @Test
+    void rolledBackDeletionShouldNotBeServed() {
+        store.onDeleted(1L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertTrue(store.findById(1L).isPresent());
+    }
+}
@@ -0,0 +1,104 @@
+package com.clearsolution.testassigment.services.snapshot;
+
+import com.clearsolution.testassigment.models.DTOs.UserDTO;
+import com.clearsolution.testassigment.models.entities.UserEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSnapshotTest {
+    @TempDir
+    Path directory;
+
+    private UserEntity user(long id, int birthYear, String address) {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setEmail("user" + id + "@gmail.com");
+        user.setFirstName("Roman");
+        user.setLastName("Kushnir");
+        user.setBirthDate(new Date(birthYear - 1900, Calendar.MARCH, 15));
+        user.setAddress(address);
+        user.setPhoneNumber("+380935288886");
+        return user;
+    }
+
+    private UserSnapshot write(List<UserEntity> users, Instant createdAt) throws Exception {
+        Path file = directory.resolve("users.snapshot");
+        try (UserSnapshotWriter writer = new UserSnapshotWriter(file, createdAt)) {
+            for (UserEntity user : users) {
+                writer.append(user);
+            }
+            writer.finish();
+        }
+        return UserSnapshot.open(file);
+    }
+
+    @Test
+    void findByIdShouldReturnWrittenUser() throws Exception {
+        Instant createdAt = Instant.ofEpochMilli(1_700_000_000_000L);
+        UserSnapshot snapshot = write(List.of(user(1, 1985, "Some address"), user(5, 1990, null), user(9, 1970, "Київ")), createdAt);
+
+        assertEquals(3, snapshot.size());
+        assertEquals(createdAt, snapshot.getCreatedAt());
+        UserDTO found = snapshot.findById(9);
+        assertEquals("user9@gmail.com", found.getEmail());
+        assertEquals("Київ", found.getAddress());
+        assertEquals(new Date(70, Calendar.MARCH, 15), found.getBirthDate());
+        assertNull(snapshot.findById(5).getAddress());
+        assertNull(snapshot.findById(4));
+    }
+
+    @Test
+    void forEachInBirthRangeShouldReturnUsersOrderedByBirthDate() throws Exception {
+        List<UserEntity> users = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            users.add(user(id, 2000 - (int) (id % 25), "Some address"));
+        }
+        UserSnapshot snapshot = write(users, Instant.now());
+
+        List<UserDTO> found = new ArrayList<>();
+        snapshot.forEachInBirthRange(LocalDate.of(1980, 1, 1).toEpochDay(), LocalDate.of(1984, 12, 31).toEpochDay(), found::add);
+
+        assertEquals(10, found.size());
+        assertThat(found).extracting(UserDTO::getBirthDate).isSorted();
+        assertThat(found).allMatch(user -> user.getBirthDate().getYear() + 1900 >= 1980 && user.getBirthDate().getYear() + 1900 <= 1984);
+    }
+
+    @Test
+    void smallSegmentsShouldReadValuesAndStringsAcrossSegmentBoundaries() throws Exception {
+        List<UserEntity> users = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            users.add(user(id, 1950 + (int) (id % 50), "Street " + id + ", Київ"));
+        }
+        write(users, Instant.now());
+        // 64 byte segments: records, index entries and strings regularly straddle two of them
+        UserSnapshot snapshot = UserSnapshot.open(directory.resolve("users.snapshot"), 6);
+
+        for (UserEntity user : users) {
+            UserDTO found = snapshot.findById(user.getId());
+            assertEquals(user.getEmail(), found.getEmail());
+            assertEquals(user.getAddress(), found.getAddress());
+            assertEquals(user.getPhoneNumber(), found.getPhoneNumber());
+            assertEquals(user.getBirthDate(), found.getBirthDate());
+        }
+        List<UserDTO> found = new ArrayList<>();
+        snapshot.forEachInBirthRange(LocalDate.of(1950, 1, 1).toEpochDay(), LocalDate.of(1999, 12, 31).toEpochDay(), found::add);
+        assertEquals(200, found.size());
+        assertThat(found).extracting(UserDTO::getBirthDate).isSorted();
+    }
+
+    @Test
+    void appendShouldRejectUnorderedIds() throws Exception {
+        try (UserSnapshotWriter writer = new UserSnapshotWriter(directory.resolve("users.snapshot"), Instant.now())) {
+            writer.append(user(2, 1985, null));
+            assertThrows(IllegalArgumentException.class, () -> writer.append(user(1, 1985, null)));
+        }
+    }
+}